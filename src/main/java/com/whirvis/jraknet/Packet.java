@@ -35,7 +35,6 @@ import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.util.Arrays;
 import java.util.UUID;
 
 import com.whirvis.jraknet.stream.PacketDataInputStream;
@@ -127,9 +126,7 @@ public class Packet {
 	 *             <code>dest</code>.
 	 */
 	public final Packet read(byte[] dest) throws IndexOutOfBoundsException {
-		for (int i = 0; i < dest.length; i++) {
-			dest[i] = buffer.readByte();
-		}
+		buffer.readBytes(dest);
 		return this;
 	}
 
@@ -145,9 +142,7 @@ public class Packet {
 	 */
 	public final byte[] read(int length) throws IndexOutOfBoundsException {
 		byte[] data = new byte[length];
-		for (int i = 0; i < data.length; i++) {
-			data[i] = buffer.readByte();
-		}
+		buffer.readBytes(data);
 		return data;
 	}
 
@@ -315,7 +310,7 @@ public class Packet {
 	 *             the packet.
 	 */
 	public final int readUnsignedTriadLE() throws IndexOutOfBoundsException {
-		return this.readTriad() & 0xFFFFFF;
+		return this.readTriadLE() & 0xFFFFFF;
 	}
 
 	/**
@@ -1326,6 +1321,9 @@ public class Packet {
 
 	/**
 	 * Returns the packet as a <code>byte[]</code>.
+	 * <p>
+	 * This works for any heap buffer, including slices and composite buffers
+	 * which do not have a single backing array of their own.
 	 * 
 	 * @return the packet as a <code>byte[]</code>, <code>null</code> if the
 	 *         buffer being used within the packet is a direct buffer.
@@ -1334,7 +1332,9 @@ public class Packet {
 		if (buffer.isDirect()) {
 			return null;
 		}
-		return Arrays.copyOfRange(buffer.array(), 0, buffer.writerIndex());
+		byte[] data = new byte[buffer.writerIndex()];
+		buffer.getBytes(0, data);
+		return data;
 	}
 
 	/**
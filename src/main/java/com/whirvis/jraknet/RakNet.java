@@ -50,6 +50,7 @@ import com.whirvis.jraknet.protocol.connection.OpenConnectionRequestOne;
 import com.whirvis.jraknet.protocol.connection.OpenConnectionResponseOne;
 import com.whirvis.jraknet.protocol.status.UnconnectedPing;
 import com.whirvis.jraknet.protocol.status.UnconnectedPong;
+import com.whirvis.jraknet.transport.Transport;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
@@ -57,9 +58,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.channel.socket.nio.NioDatagramChannel;
 
 /**
  * The main RakNet component class, containing protocol information and utility
@@ -242,10 +241,16 @@ public final class RakNet {
 	 */
 	public static final int MINECRAFT_SYSTEM_ADDRESS_COUNT = 20;
 
+	/**
+	 * Leaves the size of a socket buffer to the operating system.
+	 */
+	public static final int SYSTEM_BUFFER_SIZE = 0;
+
 	private static final HashMap<InetAddress, Integer> MAXIMUM_TRANSFER_UNIT_SIZES = new HashMap<InetAddress, Integer>();
 	private static int _lowestMaximumTransferUnitSize = -1;
 	private static long _maxPacketsPerSecond = 500;
 	private static int _systemAddressCount = RAKNET_SYSTEM_ADDRESS_COUNT;
+	private static Transport _transport = Transport.getDefault();
 
 	private RakNet() {
 		// Static class
@@ -593,7 +598,8 @@ public final class RakNet {
 
 		// Prepare bootstrap
 		RakNetPacket received = null;
-		EventLoopGroup group = new NioEventLoopGroup();
+		Transport transport = _transport;
+		EventLoopGroup group = transport.createEventLoopGroup(0);
 		int maximumTransferUnit = getMaximumTransferUnit();
 		if (maximumTransferUnit < MINIMUM_MTU_SIZE) {
 			return null;
@@ -602,9 +608,8 @@ public final class RakNet {
 			// Create bootstrap
 			Bootstrap bootstrap = new Bootstrap();
 			BootstrapHandler handler = new BootstrapHandler();
-			bootstrap.group(group).channel(NioDatagramChannel.class).option(ChannelOption.SO_BROADCAST, true)
-					.option(ChannelOption.SO_RCVBUF, maximumTransferUnit)
-					.option(ChannelOption.SO_SNDBUF, maximumTransferUnit).handler(handler);
+			bootstrap.group(group).channel(transport.getDatagramChannelClass()).option(ChannelOption.SO_BROADCAST, true)
+					.handler(handler);
 			Channel channel = bootstrap.bind(0).sync().channel();
 
 			// Wait for response
@@ -1022,6 +1027,48 @@ public final class RakNet {
 		}
 	}
 
+	/**
+	 * Returns the transport used to create the event loop groups and datagram
+	 * channels of servers, clients, and discovery.
+	 * 
+	 * @return the transport used to create the event loop groups and datagram
+	 *         channels of servers, clients, and discovery.
+	 */
+	public static Transport getTransport() {
+		return _transport;
+	}
+
+	/**
+	 * Sets the transport used to create the event loop groups and datagram
+	 * channels of servers, clients, and discovery.
+	 * <p>
+	 * By default, the native epoll transport is used when it is available,
+	 * and the NIO transport is used otherwise. Changing the transport only
+	 * affects servers and clients which are started after it has been
+	 * changed.
+	 * 
+	 * @param transport
+	 *            the transport to use.
+	 * @throws NullPointerException
+	 *             if the <code>transport</code> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>transport</code> is not available on this
+	 *             machine.
+	 * @see Transport#getDefault()
+	 */
+	public static void setTransport(Transport transport) throws NullPointerException, IllegalArgumentException {
+		if (transport == null) {
+			throw new NullPointerException("Transport cannot be null");
+		} else if (transport.isAvailable() == false) {
+			throw new IllegalArgumentException("The " + transport.getName() + " transport is not available");
+		}
+		boolean updated = _transport != transport;
+		_transport = transport;
+		if (updated == true) {
+			LOGGER.info("Set transport to " + transport.getName());
+		}
+	}
+
 	/**
 	 * Converts the specified ID to a hex string.
 	 * 
@@ -52,18 +52,18 @@ import com.whirvis.jraknet.discovery.DiscoveredServer;
 import com.whirvis.jraknet.peer.RakNetPeerMessenger;
 import com.whirvis.jraknet.peer.RakNetServerPeer;
 import com.whirvis.jraknet.peer.RakNetState;
+import com.whirvis.jraknet.protocol.Priority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.login.ConnectionRequest;
 import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.transport.DatagramBatch;
+import com.whirvis.jraknet.transport.Transport;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.DatagramPacket;
-import io.netty.channel.socket.nio.NioDatagramChannel;
 
 /**
  * Used to connect to servers using the RakNet protocol.
@@ -99,6 +99,9 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 	private final long timestamp;
 	private final ConcurrentLinkedQueue<RakNetClientListener> listeners;
 	private int eventThreadCount;
+	private int sendBufferSize;
+	private int receiveBufferSize;
+	private volatile boolean streamsEnabled;
 	private InetSocketAddress serverAddress;
 	private Bootstrap bootstrap;
 	private RakNetClientHandler handler;
@@ -109,7 +112,6 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 	private int highestMaximumTransferUnitSize;
 	private PeerFactory peerFactory;
 	private volatile RakNetServerPeer peer;
-	private Thread peerThread;
 
 	/**
 	 * Creates a RakNet client.
@@ -127,6 +129,8 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 				.getLogger(RakNetClient.class.getSimpleName() + "[" + Long.toHexString(guid).toUpperCase() + "]");
 		this.timestamp = System.currentTimeMillis();
 		this.listeners = new ConcurrentLinkedQueue<RakNetClientListener>();
+		this.sendBufferSize = RakNet.SYSTEM_BUFFER_SIZE;
+		this.receiveBufferSize = RakNet.SYSTEM_BUFFER_SIZE;
 		if (this.getClass() != RakNetClient.class && RakNetClientListener.class.isAssignableFrom(this.getClass())) {
 			this.addSelfListener();
 		}
@@ -496,6 +500,102 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 				registeredMaximumTransferUnitSizesStr.length() - 1));
 	}
 
+	/**
+	 * Returns the size of the send buffer of the socket bound by the client.
+	 * 
+	 * @return the size of the send buffer of the socket bound by the client,
+	 *         {@value RakNet#SYSTEM_BUFFER_SIZE} if it is left to the
+	 *         operating system.
+	 */
+	public final int getSendBufferSize() {
+		return this.sendBufferSize;
+	}
+
+	/**
+	 * Sets the size of the send buffer of the socket bound by the client.
+	 * <p>
+	 * By default, the size of the send buffer is left to the operating system.
+	 * The size only takes effect the next time the client connects to a
+	 * server.
+	 * 
+	 * @param sendBufferSize
+	 *            the size of the send buffer in bytes,
+	 *            {@value RakNet#SYSTEM_BUFFER_SIZE} to leave it to the
+	 *            operating system.
+	 * @throws IllegalArgumentException
+	 *             if the <code>sendBufferSize</code> is negative.
+	 */
+	public final void setSendBufferSize(int sendBufferSize) throws IllegalArgumentException {
+		if (sendBufferSize < 0) {
+			throw new IllegalArgumentException("Send buffer size cannot be negative");
+		}
+		this.sendBufferSize = sendBufferSize;
+		logger.debug("Set send buffer size to " + sendBufferSize);
+	}
+
+	/**
+	 * Returns the size of the receive buffer of the socket bound by the
+	 * client.
+	 * 
+	 * @return the size of the receive buffer of the socket bound by the
+	 *         client, {@value RakNet#SYSTEM_BUFFER_SIZE} if it is left to the
+	 *         operating system.
+	 */
+	public final int getReceiveBufferSize() {
+		return this.receiveBufferSize;
+	}
+
+	/**
+	 * Sets the size of the receive buffer of the socket bound by the client.
+	 * <p>
+	 * By default, the size of the receive buffer is left to the operating
+	 * system. The size only takes effect the next time the client connects to
+	 * a server.
+	 * 
+	 * @param receiveBufferSize
+	 *            the size of the receive buffer in bytes,
+	 *            {@value RakNet#SYSTEM_BUFFER_SIZE} to leave it to the
+	 *            operating system.
+	 * @throws IllegalArgumentException
+	 *             if the <code>receiveBufferSize</code> is negative.
+	 */
+	public final void setReceiveBufferSize(int receiveBufferSize) throws IllegalArgumentException {
+		if (receiveBufferSize < 0) {
+			throw new IllegalArgumentException("Receive buffer size cannot be negative");
+		}
+		this.receiveBufferSize = receiveBufferSize;
+		logger.debug("Set receive buffer size to " + receiveBufferSize);
+	}
+
+	/**
+	 * Enables/disables the receiving of streams from the server.
+	 * <p>
+	 * This only takes effect the next time the client connects to a server.
+	 * Streams can also be enabled for the current server specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#enableStreams(boolean)
+	 * RakNetPeer.enableStreams(boolean)} method. By default, streams are
+	 * disabled.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable streams, <code>false</code> to
+	 *            disable them.
+	 */
+	public final void setStreamsEnabled(boolean enabled) {
+		this.streamsEnabled = enabled;
+		logger.debug((enabled ? "Enabled" : "Disabled") + " streams");
+	}
+
+	/**
+	 * Returns whether or not the receiving of streams from the server is
+	 * enabled.
+	 * 
+	 * @return <code>true</code> if streams are enabled, <code>false</code>
+	 *         otherwise.
+	 */
+	public final boolean isStreamsEnabled() {
+		return this.streamsEnabled;
+	}
+
 	/**
 	 * Returns the peer of the server the client is currently connected to.
 	 * 
@@ -570,12 +670,42 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 	 *             if the client is not connected to a server.
 	 */
 	@Override
-	public final EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
-			throws IllegalStateException {
+	public final EncapsulatedPacket sendMessage(Reliability reliability, Priority priority, int channel,
+			Packet packet) throws IllegalStateException {
+		if (!this.isConnected()) {
+			throw new IllegalStateException("Cannot send messages while not connected to a server");
+		}
+		return peer.sendMessage(reliability, priority, channel, packet);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalStateException
+	 *             if the client is not connected to a server.
+	 */
+	@Override
+	public final EncapsulatedPacket sendMessage(Reliability reliability, Priority priority, int channel,
+			Packet packet, long timeToLive) throws IllegalStateException {
 		if (!this.isConnected()) {
 			throw new IllegalStateException("Cannot send messages while not connected to a server");
 		}
-		return peer.sendMessage(reliability, channel, packet);
+		return peer.sendMessage(reliability, priority, channel, packet, timeToLive);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalStateException
+	 *             if the client is not connected to a server.
+	 */
+	@Override
+	public final EncapsulatedPacket sendReplaceableMessage(Object key, Reliability reliability, Priority priority,
+			int channel, Packet packet) throws IllegalStateException {
+		if (!this.isConnected()) {
+			throw new IllegalStateException("Cannot send messages while not connected to a server");
+		}
+		return peer.sendReplaceableMessage(key, reliability, priority, channel, packet);
 	}
 
 	/**
@@ -603,7 +733,7 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 		} else if (address.getAddress() == null) {
 			throw new NullPointerException("IP address cannot be null");
 		}
-		channel.writeAndFlush(new DatagramPacket(buf, address));
+		DatagramBatch.write(channel, buf, address);
 		logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
 				+ " bits) to " + address);
 	}
@@ -673,6 +803,7 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 			if (sender.equals(peerFactory.getAddress())) {
 				RakNetServerPeer peer = peerFactory.assemble(packet);
 				if (peer != null) {
+					peer.enableStreams(streamsEnabled);
 					this.peer = peer;
 					this.peerFactory = null;
 				}
@@ -743,12 +874,20 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 		this.serverAddress = address;
 		try {
 			this.bootstrap = new Bootstrap();
-			this.group = new NioEventLoopGroup();
+			Transport transport = RakNet.getTransport();
+			this.group = transport.createEventLoopGroup(0);
 			this.handler = new RakNetClientHandler(this);
-			bootstrap.channel(NioDatagramChannel.class).group(group).handler(handler);
+			bootstrap.channel(transport.getDatagramChannelClass()).group(group).handler(handler);
 			bootstrap.option(ChannelOption.SO_BROADCAST, true).option(ChannelOption.SO_REUSEADDR, false);
+			if (sendBufferSize != RakNet.SYSTEM_BUFFER_SIZE) {
+				bootstrap.option(ChannelOption.SO_SNDBUF, sendBufferSize);
+			}
+			if (receiveBufferSize != RakNet.SYSTEM_BUFFER_SIZE) {
+				bootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+			}
 			this.channel = (bindingAddress != null ? bootstrap.bind(bindingAddress) : bootstrap.bind(0)).sync()
 					.channel();
+			DatagramBatch.install(channel, transport);
 			this.bindAddress = (InetSocketAddress) channel.localAddress();
 			this.setMaximumTransferUnitSizes(DEFAULT_TRANSFER_UNIT_SIZES);
 			logger.debug("Initialized networking");
@@ -775,39 +914,6 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 		connectionRequest.encode();
 		peer.sendMessage(Reliability.RELIABLE_ORDERED, connectionRequest);
 		logger.debug("Sent connection request to server");
-
-		// Create and start peer update thread
-		RakNetClient client = this;
-		this.peerThread = new Thread(
-				RakNetClient.class.getSimpleName() + "-Peer-Thread-" + Long.toHexString(guid).toUpperCase()) {
-
-			@Override
-			public void run() {
-				while (peer != null && !this.isInterrupted()) {
-					try {
-						Thread.sleep(0, 1); // Lower CPU usage
-					} catch (InterruptedException e) {
-						this.interrupt(); // Interrupted during sleep
-						continue;
-					}
-					if (peer != null) {
-						if (!peer.isDisconnected()) {
-							try {
-								peer.update();
-							} catch (Throwable throwable) {
-								client.callEvent(listener -> listener.onPeerException(client, peer, throwable));
-								if (!peer.isDisconnected()) {
-									client.disconnect(throwable);
-								}
-							}
-						}
-					}
-				}
-			}
-
-		};
-		peerThread.start();
-		logger.debug("Created and started peer update thread");
 		logger.info("Connected to server with address " + address);
 	}
 
@@ -902,9 +1008,7 @@ public class RakNetClient implements RakNetPeerMessenger, RakNetClientListener {
 			throw new IllegalStateException("Client is not connected to a server");
 		}
 
-		// Disconnect peer and interrupt thread
-		peerThread.interrupt();
-		this.peerThread = null;
+		// Disconnect peer
 		RakNetServerPeer peer = this.peer;
 		if (!peer.isDisconnected()) {
 			peer.disconnect();
@@ -31,6 +31,7 @@ package com.whirvis.jraknet.client;
 
 import java.net.InetSocketAddress;
 
+import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.peer.RakNetServerPeer;
 import com.whirvis.jraknet.protocol.ConnectionType;
@@ -45,7 +46,7 @@ import io.netty.buffer.ByteBuf;
  * {@link RakNetClient#addListener(RakNetClientListener)} method.
  * <p>
  * Event methods are called on the same thread that called them. Typically, this
- * is the NIO event loop group that the client is using, or the client thread
+ * is the event loop group that the client is using, or the client thread
  * itself. This normally does not matter, however in some cases if a listener
  * takes too long to respond (typically
  * {@value com.whirvis.jraknet.peer.RakNetPeer#PEER_TIMEOUT} milliseconds) then
@@ -148,6 +149,54 @@ public interface RakNetClientListener {
 	public default void handleMessage(RakNetClient client, RakNetServerPeer peer, RakNetPacket packet, int channel) {
 	}
 
+	/**
+	 * Called when a chunk of a stream has been received from the server.
+	 * <p>
+	 * The chunks of a stream are always received in the order they were sent,
+	 * allowing for them to be handled as they arrive rather than having the
+	 * entire stream stored in memory first.
+	 * <p>
+	 * This is only called if streams have been enabled with the
+	 * {@link RakNetClient#setStreamsEnabled(boolean)} method, otherwise
+	 * the chunks are passed on as regular messages.
+	 * 
+	 * @param client
+	 *            the client.
+	 * @param peer
+	 *            the server that is sending the stream.
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param channel
+	 *            the channel the stream is being sent on.
+	 * @param data
+	 *            the data of the chunk.
+	 * @see com.whirvis.jraknet.peer.RakNetPeer#sendStream(int,
+	 *      java.nio.channels.ReadableByteChannel,
+	 *      com.whirvis.jraknet.peer.StreamListener)
+	 */
+	public default void handleStreamData(RakNetClient client, RakNetServerPeer peer, int streamId, int channel,
+			Packet data) {
+	}
+
+	/**
+	 * Called when a stream being sent by the server has ended.
+	 * 
+	 * @param client
+	 *            the client.
+	 * @param peer
+	 *            the server that sent the stream.
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param channel
+	 *            the channel the stream was sent on.
+	 * @param completed
+	 *            <code>true</code> if the stream was received in full,
+	 *            <code>false</code> if it was aborted by the server.
+	 */
+	public default void onStreamEnd(RakNetClient client, RakNetServerPeer peer, int streamId, int channel,
+			boolean completed) {
+	}
+
 	/**
 	 * Called when a packet with an ID below <code>ID_USER_PACKET_ENUM</code>
 	 * cannot be handled by the {@link RakNetServerPeer} because it is not
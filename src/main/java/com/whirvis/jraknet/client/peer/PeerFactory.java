@@ -52,7 +52,6 @@ import com.whirvis.jraknet.protocol.connection.OpenConnectionResponseTwo;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelOption;
 import io.netty.channel.FixedRecvByteBufAllocator;
 
 /**
@@ -110,12 +109,11 @@ public final class PeerFactory {
 	 * @param address
 	 *            the address of the server.
 	 * @param bootstrap
-	 *            the bootstrap the <code>channel</code> belongs to. Once a
-	 *            maximum transfer unit has been decided upon, its
-	 *            {@link ChannelOption#SO_SNDBUF} and
-	 *            {@link ChannelOption#SO_RCVBUF} will be set to it.
+	 *            the bootstrap the <code>channel</code> belongs to.
 	 * @param channel
-	 *            the channel to use when creating the peer.
+	 *            the channel to use when creating the peer. Once a maximum
+	 *            transfer unit has been decided upon, its receive buffer
+	 *            allocator will be sized to it.
 	 * @param initialMaximumTransferUnit
 	 *            the initial maximum transfer unit size.
 	 * @param maximumMaximumTransferUnit
@@ -326,12 +324,10 @@ public final class PeerFactory {
 					} else if (connectionResponseTwo.maximumTransferUnit > maximumTransferUnit) {
 						logger.warn("Server responded with higher maximum transfer unit than agreed upon earlier");
 					}
-					bootstrap.option(ChannelOption.SO_SNDBUF, maximumTransferUnit)
-							.option(ChannelOption.SO_RCVBUF, maximumTransferUnit)
-							.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maximumTransferUnit));
 
 					// Create peer
 					this.maximumTransferUnit = connectionResponseTwo.maximumTransferUnit;
+					channel.config().setRecvByteBufAllocator(new FixedRecvByteBufAllocator(maximumTransferUnit));
 					this.connectionType = connectionResponseTwo.connectionType;
 					this.factoryState = STATE_PEER_ASSEMBLED;
 					client.callEvent(listener -> listener.onConnect(client, address, connectionType));
@@ -37,15 +37,16 @@ import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.protocol.status.UnconnectedPing;
 import com.whirvis.jraknet.protocol.status.UnconnectedPingOpenConnections;
+import com.whirvis.jraknet.transport.Transport;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.channel.socket.nio.NioDatagramChannel;
 
 /**
  * Used by the {@link Discovery} system to send server pings in the background.
@@ -65,9 +66,14 @@ import io.netty.channel.socket.nio.NioDatagramChannel;
  */
 public final class DiscoveryThread extends Thread {
 
+	/**
+	 * The interval in milliseconds at which pings are broadcast.
+	 */
+	private static final long PING_BROADCAST_INTERVAL = 1000L;
+
 	private final Logger logger;
 	private final Bootstrap bootstrap;
-	private final NioEventLoopGroup group;
+	private final EventLoopGroup group;
 	private final DiscoveryHandler handler;
 	private Channel channel;
 	private long lastPingBroadcast;
@@ -78,9 +84,10 @@ public final class DiscoveryThread extends Thread {
 	protected DiscoveryThread() {
 		this.logger = LogManager.getLogger(DiscoveryThread.class);
 		this.bootstrap = new Bootstrap();
-		this.group = new NioEventLoopGroup();
+		Transport transport = RakNet.getTransport();
+		this.group = transport.createEventLoopGroup(0);
 		this.handler = new DiscoveryHandler();
-		bootstrap.channel(NioDatagramChannel.class).group(group).handler(handler);
+		bootstrap.channel(transport.getDatagramChannelClass()).group(group).handler(handler);
 		bootstrap.option(ChannelOption.SO_BROADCAST, true).option(ChannelOption.SO_REUSEADDR, false);
 		try {
 			this.channel = bootstrap.bind(0).sync().channel();
@@ -92,6 +99,26 @@ public final class DiscoveryThread extends Thread {
 		this.setName(logger.getName());
 	}
 
+	/**
+	 * Returns how long the thread can sleep for before it has something to
+	 * do, which is either broadcasting the next ping or forgetting a server
+	 * that has taken too long to respond back.
+	 * <p>
+	 * The thread never sleeps for longer than the ping broadcast interval,
+	 * so that it notices when the discovery system no longer needs it in a
+	 * timely manner.
+	 * 
+	 * @return how long the thread can sleep for in milliseconds.
+	 */
+	private long getSleepTime() {
+		long currentTime = System.currentTimeMillis();
+		long sleepTime = lastPingBroadcast + PING_BROADCAST_INTERVAL - currentTime;
+		for (DiscoveredServer discovered : Discovery.DISCOVERED.values()) {
+			sleepTime = Math.min(sleepTime, DiscoveredServer.SERVER_TIMEOUT_MILLIS - discovered.getTimestamp());
+		}
+		return Math.max(Math.min(sleepTime, PING_BROADCAST_INTERVAL), 1L);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -115,7 +142,7 @@ public final class DiscoveryThread extends Thread {
 						"Discovery thread must be this while running, are there multiple discovery threads running?");
 			}
 			try {
-				Thread.sleep(0, 1); // Save CPU usage
+				Thread.sleep(this.getSleepTime()); // Wait for something to do
 			} catch (InterruptedException e) {
 				this.interrupt(); // Interrupted during sleep
 				continue;
@@ -141,7 +168,7 @@ public final class DiscoveryThread extends Thread {
 			}
 
 			// Broadcast ping to local and external servers
-			if (currentTime - lastPingBroadcast > 1000L) {
+			if (currentTime - lastPingBroadcast >= PING_BROADCAST_INTERVAL) {
 				UnconnectedPing ping = Discovery.getDiscoveryMode() == DiscoveryMode.OPEN_CONNECTIONS
 						? new UnconnectedPingOpenConnections() : new UnconnectedPing();
 				ping.timestamp = Discovery.getTimestamp();
@@ -0,0 +1,57 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * Signals that an ordered message was received with an order index too far
+ * ahead of the next order index to be handled on its channel.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class OrderingWindowOverflowException extends RuntimeException {
+
+	private static final long serialVersionUID = 2381465733214983163L;
+
+	/**
+	 * Constructs an <code>OrderingWindowOverflowException</code>.
+	 * 
+	 * @param channel
+	 *            the channel the message was sent on.
+	 * @param distance
+	 *            the distance of the order index from the next order index to
+	 *            be handled on the channel.
+	 */
+	public OrderingWindowOverflowException(int channel, int distance) {
+		super("Order index is " + distance + " ahead of the ordering window on channel " + channel + " (Maximum is "
+				+ RakNetPeer.MAX_ORDERING_WINDOW_SIZE + ")");
+	}
+
+}
@@ -33,6 +33,7 @@ import static com.whirvis.jraknet.RakNetPacket.*;
 
 import java.net.InetSocketAddress;
 
+import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.protocol.ConnectionType;
 import com.whirvis.jraknet.protocol.Reliability;
@@ -74,7 +75,7 @@ public final class RakNetClientPeer extends RakNetPeer {
 	 */
 	public RakNetClientPeer(RakNetServer server, ConnectionType connectionType, long guid, int maximumTransferUnit,
 			Channel channel, InetSocketAddress address) {
-		super(address, guid, maximumTransferUnit, connectionType, channel);
+		super(address, guid, maximumTransferUnit, connectionType, channel, server.getSplitBudget());
 		this.server = server;
 	}
 
@@ -145,6 +146,16 @@ public final class RakNetClientPeer extends RakNetPeer {
 		}
 	}
 
+	@Override
+	public void handleStreamData(int streamId, int channel, Packet data) {
+		server.callEvent(listener -> listener.handleStreamData(server, this, streamId, channel, data));
+	}
+
+	@Override
+	public void onStreamEnd(int streamId, int channel, boolean completed) {
+		server.callEvent(listener -> listener.onStreamEnd(server, this, streamId, channel, completed));
+	}
+
 	@Override
 	public void onAcknowledge(Record record, EncapsulatedPacket packet) {
 		server.callEvent(listener -> listener.onAcknowledge(server, this, record, packet));
@@ -155,4 +166,12 @@ public final class RakNetClientPeer extends RakNetPeer {
 		server.callEvent(listener -> listener.onLoss(server, this, record, packet));
 	}
 
+	@Override
+	protected void onUpdateException(Throwable cause) {
+		server.callEvent(listener -> listener.onPeerException(server, this, cause));
+		if (!this.isDisconnected()) {
+			server.disconnect(this, cause);
+		}
+	}
+
 }
@@ -33,6 +33,7 @@ import com.whirvis.jraknet.InvalidChannelException;
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.RakNetPacket;
+import com.whirvis.jraknet.protocol.Priority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
 
@@ -61,7 +62,74 @@ public interface RakNetClientPeerMessenger {
 	public long getGuid(RakNetClientPeer peer) throws NullPointerException, IllegalArgumentException;
 
 	/**
-	 * Sends a message to the specified peer.
+	 * Sends a message to the specified peer with the specified priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code>, <code>priority</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public EncapsulatedPacket sendMessage(long guid, Reliability reliability, Priority priority, int channel,
+			Packet packet) throws NullPointerException, InvalidChannelException;
+
+	/**
+	 * Sends a message to the specified peer with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>reliability</code>,
+	 *             <code>priority</code>, or <code>packet</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public default EncapsulatedPacket sendMessage(RakNetClientPeer peer, Reliability reliability, Priority priority,
+			int channel, Packet packet)
+			throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), reliability, priority, channel, packet);
+	}
+
+	/**
+	 * Sends a message to the specified peer with the {@link Priority#MEDIUM
+	 * MEDIUM} priority.
 	 * 
 	 * @param guid
 	 *            the globally unique ID of the peer to send the packet to.
@@ -85,8 +153,10 @@ public interface RakNetClientPeerMessenger {
 	 *             if the channel is higher than or equal to
 	 *             {@value RakNet#CHANNEL_COUNT}.
 	 */
-	public EncapsulatedPacket sendMessage(long guid, Reliability reliability, int channel, Packet packet)
-			throws NullPointerException, InvalidChannelException;
+	public default EncapsulatedPacket sendMessage(long guid, Reliability reliability, int channel, Packet packet)
+			throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(guid, reliability, Priority.MEDIUM, channel, packet);
+	}
 
 	/**
 	 * Sends a message to the specified peer.
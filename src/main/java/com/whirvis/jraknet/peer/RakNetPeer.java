@@ -31,13 +31,27 @@ package com.whirvis.jraknet.peer;
 
 import static com.whirvis.jraknet.RakNetPacket.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -46,24 +60,45 @@ import com.whirvis.jraknet.InvalidChannelException;
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.RakNetPacket;
-import com.whirvis.jraknet.map.concurrent.ConcurrentIntMap;
+import com.whirvis.jraknet.map.IntMap;
+import com.whirvis.jraknet.peer.congestion.CongestionControl;
+import com.whirvis.jraknet.peer.congestion.SlidingWindowCongestionControl;
+import com.whirvis.jraknet.peer.congestion.TokenBucketPacer;
 import com.whirvis.jraknet.protocol.ConnectionType;
+import com.whirvis.jraknet.protocol.Priority;
 import com.whirvis.jraknet.protocol.Reliability;
-import com.whirvis.jraknet.protocol.message.CustomFourPacket;
+import com.whirvis.jraknet.protocol.SerialNumber;
 import com.whirvis.jraknet.protocol.message.CustomPacket;
 import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.protocol.message.StreamChunk;
 import com.whirvis.jraknet.protocol.message.acknowledge.AcknowledgedPacket;
 import com.whirvis.jraknet.protocol.message.acknowledge.NotAcknowledgedPacket;
 import com.whirvis.jraknet.protocol.message.acknowledge.Record;
 import com.whirvis.jraknet.protocol.status.ConnectedPing;
 import com.whirvis.jraknet.protocol.status.ConnectedPong;
+import com.whirvis.jraknet.transport.DatagramBatch;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
-import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.PlatformDependent;
 
 /**
  * Represents a connection to another machine, be it a server or a client.
+ * <p>
+ * Every peer is confined to the event loop of its channel. Received packets
+ * are handled, the peer is updated, and messages are queued and sent only by
+ * that event loop, which is why none of the state of the peer is synchronized.
+ * Messages sent from any other thread are handed off to the event loop
+ * through a queue, and are queued to be sent once the event loop gets to
+ * them.
+ * <p>
+ * Rather than being updated at a fixed interval, a peer is only woken up by
+ * its event loop when there is something for it to do, such as a packet to
+ * resend, acknowledgements to send, a ping to send, or a timeout to check.
+ * An idle peer is only woken up every few seconds.
  * 
  * @author "Whirvis" Trent Summerlin
  * @since JRakNet v1.0.0
@@ -71,54 +106,530 @@ import io.netty.channel.socket.DatagramPacket;
 public abstract class RakNetPeer implements RakNetPeerMessenger {
 
 	/**
-	 * Used to store the message index for received reliable packets in a
-	 * condensed fashion.
+	 * Used to keep track of which reliable messages have been received.
+	 * <p>
+	 * Message indexes are stored in a ring of bits starting at the lowest
+	 * message index which has not yet been received. Once the message at the
+	 * low edge of the window has been received, the window slides forward
+	 * until it reaches the next missing message index. Any message index below
+	 * the window has already been received. This makes checking for a
+	 * duplicate message an <code>O(1)</code> operation that does not allocate
+	 * any memory.
+	 * <p>
+	 * This is only ever accessed by the event loop of the peer, and as such
+	 * is not synchronized.
 	 * 
 	 * @author "Whirvis" Trent Summerlin
-	 * @since JRakNet v2.11.0
+	 * @since JRakNet v2.12.4
 	 */
-	private static class ConcurrentMessageIndexList {
+	private static class ReliableMessageWindow {
 
-		private ArrayList<Record> indexes;
+		private static final int INITIAL_SIZE = 1024;
+
+		private long[] received;
+		private int mask;
+		private int lowestIndex;
 
 		/**
-		 * Constructs a <code>ConcurrentMesageIndexList</code>.
+		 * Constructs a <code>ReliableMessageWindow</code>.
 		 */
-		public ConcurrentMessageIndexList() {
-			this.indexes = new ArrayList<Record>();
+		public ReliableMessageWindow() {
+			this.received = new long[INITIAL_SIZE / Long.SIZE];
+			this.mask = INITIAL_SIZE - 1;
 		}
 
 		/**
-		 * Adds the specified message index to the list.
+		 * Returns whether or not the bit for the specified message index is
+		 * set.
 		 * 
 		 * @param index
-		 *            the index to add.
+		 *            the message index.
+		 * @return <code>true</code> if the bit is set, <code>false</code>
+		 *         otherwise.
+		 */
+		private boolean isSet(int index) {
+			int bit = index & mask;
+			return (received[bit >>> 6] & (1L << bit)) != 0;
+		}
+
+		/**
+		 * Grows the window so that the message index at the specified offset
+		 * from the low edge of the window can be stored.
+		 * 
+		 * @param offset
+		 *            the offset of the message index from the low edge of the
+		 *            window.
+		 * @throws ReliableWindowOverflowException
+		 *             if the window would have to grow beyond
+		 *             {@value RakNetPeer#MAX_RELIABLE_WINDOW_SIZE} message
+		 *             indexes.
 		 */
-		public synchronized void add(int index) {
-			indexes.add(new Record(index));
-			Record[] condensed = Record.condense(indexes);
-			indexes.clear();
-			for (Record record : condensed) {
-				indexes.add(record);
+		private void grow(int offset) throws ReliableWindowOverflowException {
+			if (offset >= MAX_RELIABLE_WINDOW_SIZE) {
+				throw new ReliableWindowOverflowException(offset);
+			}
+			int size = mask + 1;
+			while (size <= offset) {
+				size <<= 1;
+			}
+			long[] old = this.received;
+			int oldMask = this.mask;
+			this.received = new long[size / Long.SIZE];
+			this.mask = size - 1;
+			for (int i = 0; i <= oldMask; i++) {
+				int index = SerialNumber.add(lowestIndex, i);
+				int oldBit = index & oldMask;
+				if ((old[oldBit >>> 6] & (1L << oldBit)) != 0) {
+					int bit = index & mask;
+					received[bit >>> 6] |= 1L << bit;
+				}
 			}
 		}
 
 		/**
-		 * Returns whether or not the list contains the specified message index.
+		 * Returns whether or not the specified message index has already been
+		 * received.
+		 * 
+		 * @param index
+		 *            the message index.
+		 * @return <code>true</code> if the message index has already been
+		 *         received, <code>false</code> otherwise.
+		 */
+		public boolean contains(int index) {
+			int offset = SerialNumber.difference(index, lowestIndex);
+			return offset < 0 || (offset <= mask && this.isSet(index));
+		}
+
+		/**
+		 * Adds the specified message index to the window.
 		 * 
 		 * @param index
-		 *            the index.
-		 * @return <code>true</code> if the list contains the
-		 *         <code>index</code>.
+		 *            the index to add.
+		 * @return <code>true</code> if the message index had not yet been
+		 *         received, <code>false</code> if it is a duplicate.
+		 * @throws ReliableWindowOverflowException
+		 *             if the message index is too far ahead of the lowest
+		 *             message index that has not yet been received.
+		 */
+		public boolean add(int index) throws ReliableWindowOverflowException {
+			int offset = SerialNumber.difference(index, lowestIndex);
+			if (offset < 0 || (offset <= mask && this.isSet(index))) {
+				return false; // Already received
+			} else if (offset > mask) {
+				this.grow(offset);
+			}
+			int bit = index & mask;
+			received[bit >>> 6] |= 1L << bit;
+
+			// Slide the window forward as the low edge fills
+			while (this.isSet(lowestIndex)) {
+				bit = lowestIndex & mask;
+				received[bit >>> 6] &= ~(1L << bit);
+				this.lowestIndex = SerialNumber.next(lowestIndex);
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * Used to keep track of which custom packets have been received from the
+	 * peer by their sequence number.
+	 * <p>
+	 * Sequence numbers are stored in a ring of bits starting at the lowest
+	 * sequence number which has not yet been received, and is
+	 * {@value RakNetPeer#RECEIVE_WINDOW_SIZE} sequence numbers wide. Any
+	 * sequence number below the window has already been received, or has been
+	 * given up on. This allows duplicate custom packets to be detected before
+	 * they are decoded, while custom packets that arrive late but within the
+	 * window are still handled. Sequence numbers that are missing between the
+	 * low edge of the window and the highest sequence number received are
+	 * holes, which are reported to the peer with <code>NACK</code> packets.
+	 * <p>
+	 * This is only ever accessed by the event loop of the peer, and as such
+	 * is not synchronized.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static class ReceiveWindow {
+
+		private static final int MASK = RECEIVE_WINDOW_SIZE - 1;
+
+		/**
+		 * Adds a record for the specified range of sequence numbers to the
+		 * specified list. If the range wraps back around past the highest
+		 * sequence number, it is split into two records.
+		 * 
+		 * @param records
+		 *            the records to add to.
+		 * @param first
+		 *            the first sequence number of the range.
+		 * @param last
+		 *            the last sequence number of the range.
+		 */
+		private static void addRange(List<Record> records, int first, int last) {
+			if (first <= last) {
+				records.add(new Record(first, last));
+			} else {
+				records.add(new Record(first, SerialNumber.MAX_VALUE));
+				records.add(new Record(0, last));
+			}
+		}
+
+		private final long[] received;
+		private int lowestSequenceId;
+		private int highestSequenceId;
+		private int retries;
+		private long lastNotAcknowledgeTime;
+
+		/**
+		 * Constructs a <code>ReceiveWindow</code>.
+		 */
+		public ReceiveWindow() {
+			this.received = new long[RECEIVE_WINDOW_SIZE / Long.SIZE];
+			this.highestSequenceId = SerialNumber.MAX_VALUE;
+		}
+
+		/**
+		 * Returns whether or not the bit for the specified sequence number is
+		 * set.
+		 * 
+		 * @param sequenceId
+		 *            the sequence number.
+		 * @return <code>true</code> if the bit is set, <code>false</code>
+		 *         otherwise.
+		 */
+		private boolean isSet(int sequenceId) {
+			int bit = sequenceId & MASK;
+			return (received[bit >>> 6] & (1L << bit)) != 0;
+		}
+
+		/**
+		 * Clears the bit for the specified sequence number.
+		 * 
+		 * @param sequenceId
+		 *            the sequence number.
+		 */
+		private void clear(int sequenceId) {
+			int bit = sequenceId & MASK;
+			received[bit >>> 6] &= ~(1L << bit);
+		}
+
+		/**
+		 * Moves the low edge of the window forward to the specified sequence
+		 * number, forgetting about every sequence number before it.
+		 * 
+		 * @param sequenceId
+		 *            the new lowest sequence number of the window.
+		 */
+		private void moveTo(int sequenceId) {
+			int distance = SerialNumber.difference(sequenceId, lowestSequenceId);
+			if (distance >= RECEIVE_WINDOW_SIZE) {
+				Arrays.fill(received, 0L);
+			} else {
+				for (int i = 0; i < distance; i++) {
+					this.clear(SerialNumber.add(lowestSequenceId, i));
+				}
+			}
+			this.lowestSequenceId = sequenceId;
+			if (SerialNumber.isNewer(lowestSequenceId, SerialNumber.next(highestSequenceId))) {
+				this.highestSequenceId = SerialNumber.add(lowestSequenceId, -1);
+			}
+			this.retries = 0;
+		}
+
+		/**
+		 * Returns whether or not the custom packet with the specified sequence
+		 * number has already been received.
+		 * 
+		 * @param sequenceId
+		 *            the sequence number.
+		 * @return <code>true</code> if the custom packet has already been
+		 *         received, <code>false</code> otherwise.
+		 */
+		public boolean isDuplicate(int sequenceId) {
+			int offset = SerialNumber.difference(sequenceId, lowestSequenceId);
+			return offset < 0 || (offset < RECEIVE_WINDOW_SIZE && this.isSet(sequenceId));
+		}
+
+		/**
+		 * Adds the specified sequence number to the window. If any sequence
+		 * numbers were skipped, records for them are added to the specified
+		 * list so they can be reported to the peer.
+		 * 
+		 * @param sequenceId
+		 *            the sequence number, which must not be a duplicate.
+		 * @param currentTime
+		 *            the current time.
+		 * @param notAcknowledge
+		 *            the list to add the records of the skipped sequence
+		 *            numbers to.
+		 */
+		public void add(int sequenceId, long currentTime, List<Record> notAcknowledge) {
+			// Give up on sequence numbers that no longer fit in the window
+			if (SerialNumber.difference(sequenceId, lowestSequenceId) >= RECEIVE_WINDOW_SIZE) {
+				this.moveTo(SerialNumber.add(sequenceId, -MASK));
+			}
+
+			// Report skipped sequence numbers
+			if (SerialNumber.isNewer(sequenceId, highestSequenceId)) {
+				int first = SerialNumber.next(highestSequenceId);
+				if (first != sequenceId) {
+					addRange(notAcknowledge, first, SerialNumber.add(sequenceId, -1));
+					this.lastNotAcknowledgeTime = currentTime;
+				}
+				this.highestSequenceId = sequenceId;
+			}
+
+			// Slide the window forward as the low edge fills
+			int bit = sequenceId & MASK;
+			received[bit >>> 6] |= 1L << bit;
+			if (sequenceId == lowestSequenceId) {
+				int lowest = lowestSequenceId;
+				while (this.isSet(lowest) && SerialNumber.difference(lowest, highestSequenceId) <= 0) {
+					lowest = SerialNumber.next(lowest);
+				}
+				this.moveTo(lowest);
+			}
+		}
+
+		/**
+		 * Returns whether or not there are any holes in the window.
+		 * 
+		 * @return <code>true</code> if there are sequence numbers which have
+		 *         not been received before the highest sequence number
+		 *         received, <code>false</code> otherwise.
+		 */
+		public boolean hasHoles() {
+			return SerialNumber.isNewer(highestSequenceId, lowestSequenceId);
+		}
+
+		/**
+		 * Adds records for every hole in the window to the specified list.
+		 * 
+		 * @param notAcknowledge
+		 *            the list to add the records to.
+		 */
+		public void getHoles(List<Record> notAcknowledge) {
+			int first = -1;
+			int sequenceId = lowestSequenceId;
+			while (SerialNumber.difference(sequenceId, highestSequenceId) <= 0) {
+				if (!this.isSet(sequenceId) && first < 0) {
+					first = sequenceId;
+				} else if (this.isSet(sequenceId) && first >= 0) {
+					addRange(notAcknowledge, first, SerialNumber.add(sequenceId, -1));
+					first = -1;
+				}
+				sequenceId = SerialNumber.next(sequenceId);
+			}
+		}
+
+		/**
+		 * Gives up on every hole in the window, moving the low edge of the
+		 * window past the highest sequence number received.
+		 */
+		public void skipHoles() {
+			this.moveTo(SerialNumber.next(highestSequenceId));
+		}
+
+	}
+
+	/**
+	 * Used to store ordered messages that have been received before the
+	 * messages ordered before them on the same channel.
+	 * <p>
+	 * Messages are stored in a ring indexed by their order index, which is
+	 * only ever as large as the distance between the next order index to be
+	 * handled and the furthest order index received on the channel. Since the
+	 * next message to be handled is always at the same position in the ring
+	 * as its order index, no searching or boxing is ever needed to find it.
+	 * Windows are only created for channels that have actually received a
+	 * message out of order.
+	 * <p>
+	 * This is only ever accessed by the event loop of the peer, and as such
+	 * is not synchronized.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static class OrderingWindow {
+
+		private static final int INITIAL_SIZE = 16;
+
+		private EncapsulatedPacket[] messages;
+		private int mask;
+
+		/**
+		 * Constructs an <code>OrderingWindow</code>.
+		 */
+		public OrderingWindow() {
+			this.messages = new EncapsulatedPacket[INITIAL_SIZE];
+			this.mask = INITIAL_SIZE - 1;
+		}
+
+		/**
+		 * Stores the specified message in the window.
+		 * 
+		 * @param offset
+		 *            the distance of the order index of the message from the
+		 *            next order index to be handled on the channel.
+		 * @param encapsulated
+		 *            the message.
+		 * @throws OrderingWindowOverflowException
+		 *             if the <code>offset</code> is greater than or equal to
+		 *             {@value RakNetPeer#MAX_ORDERING_WINDOW_SIZE}.
 		 */
-		public synchronized boolean contains(int index) {
-			for (Record record : indexes) {
-				if ((record.isRanged() && record.getIndex() >= index && record.getIndex() <= index)
-						|| record.getIndex() == index) {
-					return true;
+		public void put(int offset, EncapsulatedPacket encapsulated) throws OrderingWindowOverflowException {
+			if (offset > mask) {
+				if (offset >= MAX_ORDERING_WINDOW_SIZE) {
+					throw new OrderingWindowOverflowException(encapsulated.orderChannel, offset);
+				}
+				int size = mask + 1;
+				while (size <= offset) {
+					size <<= 1;
 				}
+				EncapsulatedPacket[] old = this.messages;
+				this.messages = new EncapsulatedPacket[size];
+				this.mask = size - 1;
+				for (EncapsulatedPacket message : old) {
+					if (message != null) {
+						messages[message.orderIndex & mask] = message;
+					}
+				}
+			}
+			messages[encapsulated.orderIndex & mask] = encapsulated;
+		}
+
+		/**
+		 * Removes the message with the specified order index from the window.
+		 * 
+		 * @param orderIndex
+		 *            the order index.
+		 * @return the message, <code>null</code> if it has not yet been
+		 *         received.
+		 */
+		public EncapsulatedPacket poll(int orderIndex) {
+			int slot = orderIndex & mask;
+			EncapsulatedPacket message = messages[slot];
+			if (message == null || message.orderIndex != orderIndex) {
+				return null;
+			}
+			messages[slot] = null;
+			return message;
+		}
+
+	}
+
+	/**
+	 * A custom packet that has been sent to the peer, but has not yet been
+	 * acknowledged.
+	 * <p>
+	 * These are ordered by the time at which they are to be retransmitted, so
+	 * that the retransmission queue only ever has to look at the packets whose
+	 * retransmission timeout has expired. Custom packets without any reliable
+	 * messages are tracked as well, as they still count towards the bytes in
+	 * flight and can be used to measure the round trip time.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static class RecoveryPacket implements Comparable<RecoveryPacket> {
+
+		public final int sequenceId;
+		public final EncapsulatedPacket[] messages;
+		public final int size;
+		public final long sendTime;
+		public final boolean retransmission;
+		public final boolean continuousSend;
+		public final long retransmitTime;
+
+		/**
+		 * Constructs a <code>RecoveryPacket</code>.
+		 * 
+		 * @param custom
+		 *            the custom packet that was sent.
+		 * @param messages
+		 *            the reliable messages sent in the custom packet.
+		 * @param sendTime
+		 *            the time the custom packet was sent.
+		 * @param retransmission
+		 *            <code>true</code> if the custom packet contains messages
+		 *            that are being retransmitted, <code>false</code>
+		 *            otherwise.
+		 * @param retransmitTime
+		 *            the time at which the messages are to be retransmitted if
+		 *            the custom packet has not been acknowledged by then.
+		 */
+		public RecoveryPacket(CustomPacket custom, EncapsulatedPacket[] messages, long sendTime,
+				boolean retransmission, long retransmitTime) {
+			this.sequenceId = custom.sequenceId;
+			this.messages = messages;
+			this.size = custom.size();
+			this.sendTime = sendTime;
+			this.retransmission = retransmission;
+			this.continuousSend = custom.isContinuousSend();
+			this.retransmitTime = retransmitTime;
+		}
+
+		@Override
+		public int compareTo(RecoveryPacket o) {
+			return Long.compare(retransmitTime, o.retransmitTime);
+		}
+
+	}
+
+	/**
+	 * Used to store a stream that is being sent to the peer.
+	 * <p>
+	 * This is only ever accessed by the event loop of the peer, and as such
+	 * is not synchronized.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static class OutgoingStream {
+
+		public final int streamId;
+		public final int channel;
+		public final ReadableByteChannel source;
+		public final StreamListener listener;
+		public long sent;
+		public long acknowledged;
+		public int unacknowledged;
+		public boolean ended;
+		public long readDelay;
+		public long readTime;
+		public Throwable failure;
+
+		/**
+		 * Constructs an <code>OutgoingStream</code>.
+		 * 
+		 * @param streamId
+		 *            the ID of the stream.
+		 * @param channel
+		 *            the channel the stream is being sent on.
+		 * @param source
+		 *            the source of the data being sent.
+		 * @param listener
+		 *            the listener of the stream, may be <code>null</code>.
+		 */
+		public OutgoingStream(int streamId, int channel, ReadableByteChannel source, StreamListener listener) {
+			this.streamId = streamId;
+			this.channel = channel;
+			this.source = source;
+			this.listener = listener;
+		}
+
+		/**
+		 * Closes the source of the stream, ignoring any errors.
+		 */
+		public void close() {
+			try {
+				source.close();
+			} catch (IOException e) {
+				// Nothing more can be done with the source
 			}
-			return false;
 		}
 
 	}
@@ -130,15 +641,147 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	public static final int MAX_SPLIT_COUNT = 128;
 
 	/**
-	 * The maximum amount of split packets can be in the split handle queue.
+	 * The default maximum amount of split packets that can be in the split
+	 * handle queue.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setMaxConcurrentSplits(int)
+	 * RakNetPeer.setMaxConcurrentSplits(int)} method.
 	 */
 	public static final int MAX_SPLITS_PER_QUEUE = 4;
 
 	/**
-	 * The interval at which not acknowledged packets are automatically resent.
+	 * The default amount of time in milliseconds a split packet can go without
+	 * receiving a chunk before it is evicted from the split handle queue.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSplitTimeout(long)
+	 * RakNetPeer.setSplitTimeout(long)} method.
+	 */
+	public static final long SPLIT_TIMEOUT = 10000L;
+
+	/**
+	 * The maximum distance a received reliable message index can be ahead of
+	 * the lowest message index that has not yet been received.
+	 */
+	public static final int MAX_RELIABLE_WINDOW_SIZE = 65536;
+
+	/**
+	 * The default amount of time in milliseconds received custom packets will
+	 * wait to be acknowledged.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setAcknowledgeDelay(long)
+	 * RakNetPeer.setAcknowledgeDelay(long)} method.
+	 */
+	public static final long ACKNOWLEDGE_DELAY = 10L;
+
+	/**
+	 * The default amount of received custom packets that can be waiting to be
+	 * acknowledged before they are acknowledged regardless of the acknowledge
+	 * delay.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setAcknowledgeThreshold(int)
+	 * RakNetPeer.setAcknowledgeThreshold(int)} method.
+	 */
+	public static final int ACKNOWLEDGE_THRESHOLD = 256;
+
+	/**
+	 * The retransmission timeout used until the round trip time of the peer
+	 * has been measured.
 	 */
 	public static final long RECOVERY_SEND_INTERVAL = 500L;
 
+	/**
+	 * The minimum amount of time in milliseconds that must pass without an
+	 * acknowledgement before a custom packet is retransmitted.
+	 */
+	public static final long MINIMUM_RETRANSMISSION_TIMEOUT = 50L;
+
+	/**
+	 * The maximum amount of time in milliseconds that can pass without an
+	 * acknowledgement before a custom packet is retransmitted.
+	 */
+	public static final long MAXIMUM_RETRANSMISSION_TIMEOUT = 10000L;
+
+	/**
+	 * The default amount of full custom packets that can be sent back to back
+	 * by the pacer.
+	 * <p>
+	 * This can be changed in a peer specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setPacingBurst(int)
+	 * RakNetPeer.setPacingBurst(int)} method.
+	 */
+	public static final int PACING_BURST = 4;
+
+	/**
+	 * The pacing rate is the congestion window divided by the round trip time,
+	 * multiplied by this gain. The gain is larger than <code>1</code> so that
+	 * the pacer never keeps the congestion window from being filled.
+	 */
+	private static final double PACING_GAIN = 1.25D;
+
+	/**
+	 * The pacing gain used while the congestion control is in slow start, so
+	 * that the pacer does not hold back the growth of the congestion window.
+	 */
+	private static final double SLOW_START_PACING_GAIN = 2.0D;
+
+	/**
+	 * The maximum amount of queued messages that can be skipped over while
+	 * looking for messages that fit in the remaining space of a custom packet.
+	 */
+	private static final int PACKING_LOOKAHEAD = 64;
+
+	/**
+	 * The minimum amount of data a chunk of a stream must be able to hold for
+	 * it to be packed into a custom packet that already contains other
+	 * messages.
+	 */
+	private static final int MINIMUM_STREAM_CHUNK_SIZE = 128;
+
+	/**
+	 * The maximum amount of time in milliseconds to wait before reading from
+	 * the source of a stream again, after it has repeatedly had no data
+	 * available.
+	 */
+	private static final long MAX_STREAM_READ_DELAY = 64L;
+
+	/**
+	 * The amount of already acknowledged packets that can be waiting in the
+	 * retransmission queue before it is cleared of them.
+	 */
+	private static final int RETRANSMIT_QUEUE_SLACK = 1024;
+
+	/**
+	 * The amount of custom packet sequence numbers, starting at the lowest
+	 * sequence number that has not yet been received, within which custom
+	 * packets that arrive out of order are still handled and duplicates are
+	 * detected.
+	 */
+	public static final int RECEIVE_WINDOW_SIZE = 2048;
+
+	/**
+	 * The maximum amount of times the sequence numbers of custom packets
+	 * that were never received are reported again in a <code>NACK</code>
+	 * packet before they are given up on.
+	 */
+	private static final int MAX_NOT_ACKNOWLEDGE_RETRIES = 3;
+
+	/**
+	 * The maximum distance a received ordered message's order index can be
+	 * ahead of the next order index to be handled on its channel.
+	 */
+	public static final int MAX_ORDERING_WINDOW_SIZE = 65536;
+
+	/**
+	 * The shortest amount of time in milliseconds a peer waits before being
+	 * updated again, when an update is scheduled ahead of time rather than
+	 * being woken up by a packet or a message.
+	 */
+	public static final long UPDATE_INTERVAL = 1L;
+
 	/**
 	 * The interval at which pings are sent.
 	 */
@@ -165,32 +808,62 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	private final int maximumTransferUnit;
 	private final ConnectionType connectionType;
 	private final Channel channel;
-	private RakNetState state;
+	private final EventLoop eventLoop;
+	private final Queue<Runnable> tasks;
+	private final AtomicBoolean tasksScheduled;
+	private ScheduledFuture<?> updateFuture;
+	private long updateTime;
+	private volatile RakNetState state;
 	private long timeout;
+	private long acknowledgeDelay;
+	private int acknowledgeThreshold;
 	private int packetsSentThisSecond;
 	private int packetsReceivedThisSecond;
 	private long lastPacketsSentThisSecondResetTime;
 	private long lastPacketsReceivedThisSecondResetTime;
 	private long lastPacketSendTime;
 	private long lastPacketReceiveTime;
-	private long lastRecoverySendTime;
 	private long lastDetectionSendTime;
 	private long lastPingSendTime;
 	private int messageIndex;
 	private int splitId;
-	private final ConcurrentMessageIndexList reliablePackets;
-	private final ConcurrentIntMap<EncapsulatedPacket.Split> splitQueue;
-	private final ConcurrentLinkedQueue<EncapsulatedPacket> sendQueue;
-	private final ConcurrentIntMap<EncapsulatedPacket[]> recoveryQueue;
-	private final ConcurrentHashMap<EncapsulatedPacket, Integer> ackReceiptPackets;
+	private final AtomicInteger streamId;
+	private final ArrayList<OutgoingStream> outgoingStreams;
+	private final IntMap<OutgoingStream> streamChunks;
+	private int streamCursor;
+	private boolean streamsEnabled;
+	private final ReliableMessageWindow reliablePackets;
+	private final SplitReassembler splitQueue;
+	private final List<ArrayDeque<EncapsulatedPacket>> sendQueue;
+	private final int[] sendCredit;
+	private long expiredMessageCount;
+	private final List<HashMap<Object, EncapsulatedPacket>> replaceable;
+	private final ArrayDeque<EncapsulatedPacket> resendQueue;
+	private final IntMap<RecoveryPacket> recoveryQueue;
+	private final PriorityQueue<RecoveryPacket> retransmitQueue;
+	private CongestionControl congestionControl;
+	private int bytesInFlight;
+	private boolean pacingEnabled;
+	private int pacingBurst;
+	private final TokenBucketPacer pacer;
+	private final long[] coalescingDelay;
+	private final IntMap<EncapsulatedPacket[]> ackReceiptPackets;
+	private int[] acknowledgeQueue;
+	private int acknowledgeQueueSize;
+	private final ArrayList<Record> notAcknowledgeQueue;
+	private long acknowledgeQueueTime;
 	private int sendSequenceNumber;
-	private int receiveSequenceNumber;
+	private final ReceiveWindow receiveWindow;
 	private final int[] orderSendIndex;
 	private final int[] orderReceiveIndex;
 	private final int[] sequenceSendIndex;
 	private final int[] sequenceReceiveIndex;
-	private final ConcurrentIntMap<ConcurrentIntMap<EncapsulatedPacket>> handleQueue;
+	private final OrderingWindow[] handleQueue;
 	private boolean latencyEnabled;
+	private boolean roundTripTimeLatencyEnabled;
+	private double smoothedRoundTripTime;
+	private double roundTripTimeVariance;
+	private long retransmissionTimeout;
 	private int pongsReceived;
 	private long totalLatency;
 	private long latency;
@@ -211,10 +884,16 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * @param connectionType
 	 *            the connection type of the peer.
 	 * @param channel
-	 *            the channel to communicate to the peer with.
+	 *            the channel to communicate to the peer with. The peer will
+	 *            be confined to the event loop of this channel.
+	 * @param splitBudget
+	 *            the budget limiting the memory used by split packets waiting
+	 *            to be reassembled, shared with other peers. A
+	 *            <code>null</code> value means the memory used is only limited
+	 *            for this peer.
 	 */
 	protected RakNetPeer(InetSocketAddress address, long guid, int maximumTransferUnit, ConnectionType connectionType,
-			Channel channel) {
+			Channel channel, SplitBudget splitBudget) {
 		this.logger = LogManager
 				.getLogger(RakNetPeer.class.getSimpleName() + "-" + Long.toHexString(guid).toUpperCase());
 		this.address = address;
@@ -222,30 +901,84 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		this.maximumTransferUnit = maximumTransferUnit;
 		this.connectionType = connectionType;
 		this.channel = channel;
+		this.eventLoop = channel.eventLoop();
+		this.tasks = PlatformDependent.newMpscQueue();
+		this.tasksScheduled = new AtomicBoolean();
 		this.state = RakNetState.CONNECTED;
 		this.timeout = PEER_TIMEOUT;
+		this.acknowledgeDelay = ACKNOWLEDGE_DELAY;
+		this.acknowledgeThreshold = ACKNOWLEDGE_THRESHOLD;
 		this.lastPacketReceiveTime = System.currentTimeMillis();
-		this.reliablePackets = new ConcurrentMessageIndexList();
-		this.splitQueue = new ConcurrentIntMap<EncapsulatedPacket.Split>();
-		this.sendQueue = new ConcurrentLinkedQueue<EncapsulatedPacket>();
-		this.recoveryQueue = new ConcurrentIntMap<EncapsulatedPacket[]>();
-		this.ackReceiptPackets = new ConcurrentHashMap<EncapsulatedPacket, Integer>();
-		this.receiveSequenceNumber = -1;
+		this.reliablePackets = new ReliableMessageWindow();
+		this.splitQueue = new SplitReassembler(logger, splitBudget,
+				(long) MAX_SPLITS_PER_QUEUE * MAX_SPLIT_COUNT * maximumTransferUnit);
+		this.streamId = new AtomicInteger();
+		this.outgoingStreams = new ArrayList<OutgoingStream>();
+		this.streamChunks = new IntMap<OutgoingStream>();
+		this.sendQueue = new ArrayList<ArrayDeque<EncapsulatedPacket>>(Priority.values().length);
+		for (int i = 0; i < Priority.values().length; i++) {
+			sendQueue.add(new ArrayDeque<EncapsulatedPacket>());
+		}
+		this.sendCredit = new int[sendQueue.size()];
+		this.replaceable = new ArrayList<HashMap<Object, EncapsulatedPacket>>(sendQueue.size());
+		for (int i = 0; i < sendQueue.size(); i++) {
+			replaceable.add(new HashMap<Object, EncapsulatedPacket>());
+		}
+		this.resendQueue = new ArrayDeque<EncapsulatedPacket>();
+		this.recoveryQueue = new IntMap<RecoveryPacket>();
+		this.retransmitQueue = new PriorityQueue<RecoveryPacket>();
+		this.congestionControl = new SlidingWindowCongestionControl(maximumTransferUnit);
+		this.pacingEnabled = true;
+		this.pacingBurst = PACING_BURST;
+		this.pacer = new TokenBucketPacer(maximumTransferUnit * PACING_BURST);
+		this.coalescingDelay = new long[RakNet.CHANNEL_COUNT];
+		this.ackReceiptPackets = new IntMap<EncapsulatedPacket[]>();
+		this.acknowledgeQueue = new int[ACKNOWLEDGE_THRESHOLD];
+		this.notAcknowledgeQueue = new ArrayList<Record>();
+		this.receiveWindow = new ReceiveWindow();
 		this.orderSendIndex = new int[RakNet.CHANNEL_COUNT];
 		this.orderReceiveIndex = new int[RakNet.CHANNEL_COUNT];
 		this.sequenceSendIndex = new int[RakNet.CHANNEL_COUNT];
 		this.sequenceReceiveIndex = new int[RakNet.CHANNEL_COUNT];
-		this.handleQueue = new ConcurrentIntMap<ConcurrentIntMap<EncapsulatedPacket>>();
+		this.handleQueue = new OrderingWindow[RakNet.CHANNEL_COUNT];
 		for (int i = 0; i < RakNet.CHANNEL_COUNT; i++) {
-			sequenceReceiveIndex[i] = -1;
-			handleQueue.put(i, new ConcurrentIntMap<EncapsulatedPacket>());
+			sequenceReceiveIndex[i] = SerialNumber.MAX_VALUE;
 		}
 		this.latencyEnabled = true;
+		this.smoothedRoundTripTime = -1;
+		this.roundTripTimeVariance = -1;
+		this.retransmissionTimeout = RECOVERY_SEND_INTERVAL;
 		this.latency = -1;
 		this.lastLatency = -1;
 		this.lowestLatency = -1;
 		this.highestLatency = -1;
 		this.latencyTimestamps = new ArrayList<Long>();
+
+		/*
+		 * Peers are created by the event loop of their channel when the
+		 * connection is first established, so the first update can never
+		 * run before the peer has been fully constructed.
+		 */
+		this.execute(() -> this.schedule(System.currentTimeMillis() + UPDATE_INTERVAL));
+	}
+
+	/**
+	 * Creates a RakNet peer.
+	 * 
+	 * @param address
+	 *            the address of the peer.
+	 * @param guid
+	 *            the globally unique ID of the peer.
+	 * @param maximumTransferUnit
+	 *            the maximum transfer unit of the peer.
+	 * @param connectionType
+	 *            the connection type of the peer.
+	 * @param channel
+	 *            the channel to communicate to the peer with.
+	 */
+	protected RakNetPeer(InetSocketAddress address, long guid, int maximumTransferUnit, ConnectionType connectionType,
+			Channel channel) {
+		this(address, guid, maximumTransferUnit, connectionType, channel, null);
 	}
 
 	/**
@@ -311,6 +1044,18 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		return this.connectionType;
 	}
 
+	/**
+	 * Returns the event loop the peer is confined to.
+	 * <p>
+	 * This is the event loop of the channel the peer communicates over, and
+	 * the only thread that handles the packets it receives and updates it.
+	 * 
+	 * @return the event loop the peer is confined to.
+	 */
+	public final EventLoop getEventLoop() {
+		return this.eventLoop;
+	}
+
 	/**
 	 * Returns the current state of the peer, guaranteed to not be
 	 * <code>null</code>.
@@ -408,17 +1153,398 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		if (timeout < 0) {
 			throw new IllegalArgumentException("Timeout cannot be negative");
 		}
-		this.timeout = timeout;
+		this.execute(() -> this.timeout = timeout);
 	}
 
 	/**
-	 * Returns the peer's timestamp. If login has not yet been completed,
-	 * <code>-1</code> will be returned.
+	 * Returns the amount of time in milliseconds received custom packets will
+	 * wait to be acknowledged.
+	 * <p>
+	 * By default, this value is set to {@value RakNetPeer#ACKNOWLEDGE_DELAY}.
 	 * 
-	 * @return the peer's timestamp, <code>-1</code> if login has not yet been
-	 *         completed.
+	 * @return the amount of time in milliseconds received custom packets will
+	 *         wait to be acknowledged.
 	 */
-	public abstract long getTimestamp();
+	public final long getAcknowledgeDelay() {
+		return this.acknowledgeDelay;
+	}
+
+	/**
+	 * Sets the amount of time in milliseconds received custom packets will
+	 * wait to be acknowledged.
+	 * <p>
+	 * All packets received during this time are acknowledged together in as
+	 * few <code>ACK</code> packets as possible. A delay of <code>0</code>
+	 * will cause received packets to be acknowledged on the next update.
+	 * 
+	 * @param acknowledgeDelay
+	 *            the acknowledge delay.
+	 * @throws IllegalArgumentException
+	 *             if the <code>acknowledgeDelay</code> is negative.
+	 */
+	public final void setAcknowledgeDelay(long acknowledgeDelay) throws IllegalArgumentException {
+		if (acknowledgeDelay < 0) {
+			throw new IllegalArgumentException("Acknowledge delay cannot be negative");
+		}
+		this.execute(() -> this.acknowledgeDelay = acknowledgeDelay);
+	}
+
+	/**
+	 * Returns the amount of received custom packets that can be waiting to be
+	 * acknowledged before they are acknowledged regardless of the acknowledge
+	 * delay.
+	 * <p>
+	 * By default, this value is set to
+	 * {@value RakNetPeer#ACKNOWLEDGE_THRESHOLD}.
+	 * 
+	 * @return the amount of received custom packets that can be waiting to be
+	 *         acknowledged.
+	 */
+	public final int getAcknowledgeThreshold() {
+		return this.acknowledgeThreshold;
+	}
+
+	/**
+	 * Sets the amount of received custom packets that can be waiting to be
+	 * acknowledged before they are acknowledged regardless of the acknowledge
+	 * delay.
+	 * 
+	 * @param acknowledgeThreshold
+	 *            the acknowledge threshold.
+	 * @throws IllegalArgumentException
+	 *             if the <code>acknowledgeThreshold</code> is less than
+	 *             <code>1</code>.
+	 */
+	public final void setAcknowledgeThreshold(int acknowledgeThreshold) throws IllegalArgumentException {
+		if (acknowledgeThreshold < 1) {
+			throw new IllegalArgumentException("Acknowledge threshold must be at least 1");
+		}
+		this.execute(() -> this.acknowledgeThreshold = acknowledgeThreshold);
+	}
+
+	/**
+	 * Returns the congestion control of the peer.
+	 * <p>
+	 * By default, this is a {@link SlidingWindowCongestionControl}.
+	 * 
+	 * @return the congestion control of the peer.
+	 */
+	public final CongestionControl getCongestionControl() {
+		return this.congestionControl;
+	}
+
+	/**
+	 * Sets the congestion control of the peer.
+	 * <p>
+	 * The congestion control determines how many bytes the peer can have in
+	 * flight at once, meaning sent but not yet acknowledged or reported lost.
+	 * 
+	 * @param congestionControl
+	 *            the congestion control.
+	 * @throws NullPointerException
+	 *             if the <code>congestionControl</code> is <code>null</code>.
+	 * @see com.whirvis.jraknet.peer.congestion.CubicCongestionControl
+	 *      CubicCongestionControl
+	 */
+	public final void setCongestionControl(CongestionControl congestionControl) throws NullPointerException {
+		if (congestionControl == null) {
+			throw new NullPointerException("Congestion control cannot be null");
+		}
+		this.execute(() -> {
+			this.congestionControl = congestionControl;
+			logger.debug("Set congestion control to " + congestionControl.getClass().getSimpleName());
+		});
+	}
+
+	/**
+	 * Returns the amount of bytes the peer has in flight.
+	 * <p>
+	 * These are the bytes of all custom packets that have been sent to the
+	 * peer, but have not yet been acknowledged, reported lost, or had their
+	 * retransmission timeout expire.
+	 * 
+	 * @return the amount of bytes the peer has in flight.
+	 */
+	public final int getBytesInFlight() {
+		return this.bytesInFlight;
+	}
+
+	/**
+	 * Enables/disables pacing.
+	 * <p>
+	 * When enabled, the custom packets sent to the peer are spread over time
+	 * at a rate derived from the congestion window and the round trip time,
+	 * rather than being sent in bursts as soon as they fit within the
+	 * congestion window. Only up to the pacing burst can be sent back to back.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable pacing, <code>false</code> to
+	 *            disable it.
+	 * @see #setPacingBurst(int)
+	 */
+	public final void enablePacing(boolean enabled) {
+		this.execute(() -> {
+			boolean wasEnabled = pacingEnabled;
+			this.pacingEnabled = enabled;
+			if (wasEnabled != enabled) {
+				logger.debug((enabled ? "Enabled" : "Disabled") + " pacing");
+			}
+		});
+	}
+
+	/**
+	 * Returns whether or not pacing is enabled.
+	 * 
+	 * @return <code>true</code> if pacing is enabled, <code>false</code>
+	 *         otherwise.
+	 */
+	public final boolean pacingEnabled() {
+		return this.pacingEnabled;
+	}
+
+	/**
+	 * Returns the amount of full custom packets that can be sent back to back
+	 * by the pacer.
+	 * <p>
+	 * By default, this value is set to {@value RakNetPeer#PACING_BURST}.
+	 * 
+	 * @return the amount of full custom packets that can be sent back to back
+	 *         by the pacer.
+	 */
+	public final int getPacingBurst() {
+		return this.pacingBurst;
+	}
+
+	/**
+	 * Sets the amount of full custom packets that can be sent back to back by
+	 * the pacer.
+	 * 
+	 * @param pacingBurst
+	 *            the pacing burst.
+	 * @throws IllegalArgumentException
+	 *             if the <code>pacingBurst</code> is less than <code>1</code>.
+	 */
+	public final void setPacingBurst(int pacingBurst) throws IllegalArgumentException {
+		if (pacingBurst < 1) {
+			throw new IllegalArgumentException("Pacing burst must be at least 1");
+		}
+		this.execute(() -> {
+			this.pacingBurst = pacingBurst;
+			pacer.setBurstSize(maximumTransferUnit * pacingBurst);
+		});
+	}
+
+	/**
+	 * Returns the coalescing delay of the specified channel.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @return the amount of time in milliseconds messages sent on the channel
+	 *         can wait to be sent together with other messages.
+	 * @throws InvalidChannelException
+	 *             if the <code>channel</code> is greater than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final long getCoalescingDelay(int channel) throws InvalidChannelException {
+		if (channel >= RakNet.CHANNEL_COUNT) {
+			throw new InvalidChannelException(channel);
+		}
+		return coalescingDelay[channel];
+	}
+
+	/**
+	 * Sets the coalescing delay of the specified channel.
+	 * <p>
+	 * Messages sent on a channel with a coalescing delay are not sent in a
+	 * custom packet of their own until they have waited for the delay, giving
+	 * more messages the chance to be sent in the same custom packet. They are
+	 * still sent right away if there is room left in a custom packet that is
+	 * being sent anyway. By default, no channel has a coalescing delay.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param delay
+	 *            the amount of time in milliseconds messages sent on the
+	 *            channel can wait to be sent together with other messages.
+	 * @throws InvalidChannelException
+	 *             if the <code>channel</code> is greater than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @throws IllegalArgumentException
+	 *             if the <code>delay</code> is negative.
+	 */
+	public final void setCoalescingDelay(int channel, long delay)
+			throws InvalidChannelException, IllegalArgumentException {
+		if (channel >= RakNet.CHANNEL_COUNT) {
+			throw new InvalidChannelException(channel);
+		} else if (delay < 0) {
+			throw new IllegalArgumentException("Coalescing delay cannot be negative");
+		}
+		this.execute(() -> coalescingDelay[channel] = delay);
+	}
+
+	/**
+	 * Returns the maximum amount of split packets that can be reassembled at
+	 * once.
+	 * <p>
+	 * By default, this value is set to
+	 * {@value RakNetPeer#MAX_SPLITS_PER_QUEUE}.
+	 * 
+	 * @return the maximum amount of split packets that can be reassembled at
+	 *         once.
+	 */
+	public final int getMaxConcurrentSplits() {
+		return splitQueue.getMaxConcurrentSplits();
+	}
+
+	/**
+	 * Sets the maximum amount of split packets that can be reassembled at
+	 * once.
+	 * <p>
+	 * When a chunk of a new split packet is received while the limit has been
+	 * reached, every unreliable split packet is evicted. If there is still no
+	 * room, an unreliable chunk is dropped while a reliable chunk causes a
+	 * {@link SplitQueueOverflowException} to be thrown.
+	 * <p>
+	 * The split memory limit is not changed along with this value. When
+	 * raising it, the {@link #setSplitMemoryLimit(long) split memory limit}
+	 * should be raised as well so that every split packet allowed can be
+	 * reassembled at once.
+	 * 
+	 * @param maxConcurrentSplits
+	 *            the maximum amount of split packets that can be reassembled
+	 *            at once.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maxConcurrentSplits</code> is less than
+	 *             <code>1</code>.
+	 */
+	public final void setMaxConcurrentSplits(int maxConcurrentSplits) throws IllegalArgumentException {
+		if (maxConcurrentSplits < 1) {
+			throw new IllegalArgumentException("Max concurrent splits must be at least 1");
+		}
+		this.execute(() -> splitQueue.setMaxConcurrentSplits(maxConcurrentSplits));
+	}
+
+	/**
+	 * Returns the amount of memory in bytes that can be used by the chunks of
+	 * split packets waiting to be reassembled.
+	 * <p>
+	 * By default, this value is enough for
+	 * {@value RakNetPeer#MAX_SPLITS_PER_QUEUE} split packets with
+	 * {@value RakNetPeer#MAX_SPLIT_COUNT} chunks each to be reassembled at once
+	 * at the maximum transfer unit of the peer.
+	 * 
+	 * @return the amount of memory in bytes that can be used by the chunks of
+	 *         split packets waiting to be reassembled.
+	 */
+	public final long getSplitMemoryLimit() {
+		return splitQueue.getMemoryLimit();
+	}
+
+	/**
+	 * Sets the amount of memory in bytes that can be used by the chunks of
+	 * split packets waiting to be reassembled.
+	 * <p>
+	 * This limit applies to this peer alone, and a reliable chunk that would go
+	 * over it causes a {@link SplitQueueOverflowException} to be thrown. If the
+	 * peer shares a {@link SplitBudget} with other peers and only that budget
+	 * has been used up, a reliable chunk is left unacknowledged instead so that
+	 * it is resent once memory has been freed.
+	 * 
+	 * @param splitMemoryLimit
+	 *            the amount of memory in bytes that can be used by the chunks
+	 *            of split packets waiting to be reassembled.
+	 * @throws IllegalArgumentException
+	 *             if the <code>splitMemoryLimit</code> is negative.
+	 */
+	public final void setSplitMemoryLimit(long splitMemoryLimit) throws IllegalArgumentException {
+		if (splitMemoryLimit < 0) {
+			throw new IllegalArgumentException("Split memory limit cannot be negative");
+		}
+		this.execute(() -> splitQueue.setMemoryLimit(splitMemoryLimit));
+	}
+
+	/**
+	 * Returns the amount of memory in bytes currently used by the chunks of
+	 * split packets waiting to be reassembled.
+	 * 
+	 * @return the amount of memory in bytes currently used by the chunks of
+	 *         split packets waiting to be reassembled.
+	 */
+	public final long getSplitMemoryUsed() {
+		return splitQueue.getUsed();
+	}
+
+	/**
+	 * Returns the amount of time in milliseconds a split packet can go without
+	 * receiving a chunk before it is evicted.
+	 * <p>
+	 * By default, this value is set to {@value RakNetPeer#SPLIT_TIMEOUT}.
+	 * 
+	 * @return the amount of time in milliseconds a split packet can go without
+	 *         receiving a chunk before it is evicted.
+	 */
+	public final long getSplitTimeout() {
+		return splitQueue.getTimeout();
+	}
+
+	/**
+	 * Sets the amount of time in milliseconds a split packet can go without
+	 * receiving a chunk before it is evicted.
+	 * <p>
+	 * Since the message inside of a reliable split packet can never be
+	 * received once it has been evicted, a
+	 * {@link SplitQueueOverflowException} is thrown by {@link #update()} when
+	 * a reliable split packet times out.
+	 * 
+	 * @param splitTimeout
+	 *            the amount of time in milliseconds a split packet can go
+	 *            without receiving a chunk before it is evicted.
+	 * @throws IllegalArgumentException
+	 *             if the <code>splitTimeout</code> is negative.
+	 */
+	public final void setSplitTimeout(long splitTimeout) throws IllegalArgumentException {
+		if (splitTimeout < 0) {
+			throw new IllegalArgumentException("Split timeout cannot be negative");
+		}
+		this.execute(() -> splitQueue.setTimeout(splitTimeout));
+	}
+
+	/**
+	 * Returns the amount of split packets that have been evicted before all
+	 * of their chunks were received.
+	 * <p>
+	 * Split packets are evicted when they time out, or to make room for new
+	 * chunks when the split packet limits have been reached.
+	 * 
+	 * @return the amount of split packets that have been evicted before all
+	 *         of their chunks were received.
+	 */
+	public final long getSplitEvictionCount() {
+		return splitQueue.getEvictionCount();
+	}
+
+	/**
+	 * Returns the amount of messages that have expired before they could be
+	 * sent.
+	 * <p>
+	 * Split messages are counted once for every chunk of them that expired.
+	 * 
+	 * @return the amount of messages that have expired before they could be
+	 *         sent.
+	 * @see #sendMessage(Reliability, Priority, int, Packet, long)
+	 */
+	public final long getExpiredMessageCount() {
+		return this.expiredMessageCount;
+	}
+
+	/**
+	 * Returns the peer's timestamp. If login has not yet been completed,
+	 * <code>-1</code> will be returned.
+	 * 
+	 * @return the peer's timestamp, <code>-1</code> if login has not yet been
+	 *         completed.
+	 */
+	public abstract long getTimestamp();
 
 	/**
 	 * Returns the amount of packets sent in the last second.
@@ -482,8 +1608,10 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * @return the message index.
 	 */
 	public final int bumpMessageIndex() {
-		logger.trace("Bumped message index from " + messageIndex + " to " + (messageIndex + 1));
-		return this.messageIndex++;
+		int index = this.messageIndex;
+		this.messageIndex = SerialNumber.next(index);
+		logger.trace("Bumped message index from " + index + " to " + SerialNumber.next(index));
+		return index;
 	}
 
 	/**
@@ -498,13 +1626,15 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 *            <code>false</code> to disable it.
 	 */
 	public final void enableLatencyDetection(boolean enabled) {
-		boolean wasEnabled = latencyEnabled;
-		this.latencyEnabled = enabled;
-		this.latency = enabled ? latency : -1;
-		this.pongsReceived = enabled ? pongsReceived : 0;
-		if (wasEnabled != enabled) {
-			logger.info((enabled ? "Enabled" : "Disabled") + " latency detection");
-		}
+		this.execute(() -> {
+			boolean wasEnabled = latencyEnabled;
+			this.latencyEnabled = enabled;
+			this.latency = enabled ? latency : -1;
+			this.pongsReceived = enabled ? pongsReceived : 0;
+			if (wasEnabled != enabled) {
+				logger.info((enabled ? "Enabled" : "Disabled") + " latency detection");
+			}
+		});
 	}
 
 	/**
@@ -517,10 +1647,130 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		return this.latencyEnabled;
 	}
 
+	/**
+	 * Enables/disables the use of the round trip time measured from
+	 * acknowledgements as the latency of the peer.
+	 * <p>
+	 * When enabled, the latency methods report the round trip time of custom
+	 * packets, measured from the time they were sent to the time they were
+	 * acknowledged, with {@link #getLatency()} reporting the smoothed round
+	 * trip time. Since this requires no extra traffic,
+	 * {@link com.whirvis.jraknet.protocol.status.ConnectedPing CONNECTED_PING}
+	 * packets are no longer sent to detect the latency. This has no effect if
+	 * latency detection is disabled.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to use the round trip time as the latency,
+	 *            <code>false</code> to use pings.
+	 * @see #enableLatencyDetection(boolean)
+	 */
+	public final void enableRoundTripTimeLatency(boolean enabled) {
+		this.execute(() -> {
+			boolean wasEnabled = roundTripTimeLatencyEnabled;
+			this.roundTripTimeLatencyEnabled = enabled;
+			if (wasEnabled != enabled) {
+				this.pongsReceived = 0;
+				this.totalLatency = 0;
+				latencyTimestamps.clear();
+				logger.info((enabled ? "Enabled" : "Disabled") + " round trip time latency");
+			}
+		});
+	}
+
+	/**
+	 * Returns whether or not the round trip time measured from
+	 * acknowledgements is used as the latency of the peer.
+	 * 
+	 * @return <code>true</code> if the round trip time is used as the
+	 *         latency, <code>false</code> otherwise.
+	 */
+	public final boolean roundTripTimeLatencyEnabled() {
+		return this.roundTripTimeLatencyEnabled;
+	}
+
+	/**
+	 * Returns the smoothed round trip time of the peer.
+	 * <p>
+	 * This is measured from the time custom packets are sent to the time they
+	 * are acknowledged, regardless of whether or not latency detection is
+	 * enabled.
+	 * 
+	 * @return the smoothed round trip time of the peer in milliseconds,
+	 *         <code>-1</code> if it has not yet been measured.
+	 */
+	public final long getRoundTripTime() {
+		return Math.round(this.smoothedRoundTripTime);
+	}
+
+	/**
+	 * Returns the round trip time variance of the peer.
+	 * 
+	 * @return the round trip time variance of the peer in milliseconds,
+	 *         <code>-1</code> if it has not yet been measured.
+	 */
+	public final long getRoundTripTimeVariance() {
+		return Math.round(this.roundTripTimeVariance);
+	}
+
+	/**
+	 * Returns the current retransmission timeout of the peer.
+	 * <p>
+	 * This is the amount of time in milliseconds that must pass without a
+	 * custom packet containing reliable messages being acknowledged before it
+	 * is retransmitted. It is calculated from the round trip time and its
+	 * variance, and is doubled every time a retransmission timeout expires.
+	 * 
+	 * @return the current retransmission timeout of the peer.
+	 */
+	public final long getRetransmissionTimeout() {
+		return this.retransmissionTimeout;
+	}
+
+	/**
+	 * Updates the round trip time of the peer using the specified sample.
+	 * <p>
+	 * The smoothed round trip time, its variance, and the retransmission
+	 * timeout are calculated as described in RFC 6298.
+	 * 
+	 * @param sample
+	 *            the measured round trip time of a custom packet.
+	 */
+	private final void updateRoundTripTime(long sample) {
+		if (smoothedRoundTripTime < 0) {
+			this.smoothedRoundTripTime = sample;
+			this.roundTripTimeVariance = sample / 2.0D;
+		} else {
+			this.roundTripTimeVariance = 0.75D * roundTripTimeVariance
+					+ 0.25D * Math.abs(smoothedRoundTripTime - sample);
+			this.smoothedRoundTripTime = 0.875D * smoothedRoundTripTime + 0.125D * sample;
+		}
+		long timeout = (long) Math.ceil(smoothedRoundTripTime + Math.max(1.0D, 4.0D * roundTripTimeVariance));
+		this.retransmissionTimeout = Math.min(Math.max(timeout, MINIMUM_RETRANSMISSION_TIMEOUT),
+				MAXIMUM_RETRANSMISSION_TIMEOUT);
+
+		// Update latency
+		if (latencyEnabled == true && roundTripTimeLatencyEnabled == true) {
+			this.lastLatency = sample;
+			if (latency < 0) {
+				this.lowestLatency = sample;
+				this.highestLatency = sample;
+			} else if (sample < lowestLatency) {
+				this.lowestLatency = sample;
+			} else if (sample > highestLatency) {
+				this.highestLatency = sample;
+			}
+			this.latency = this.getRoundTripTime();
+		}
+	}
+
 	/**
 	 * Returns the average latency for the peer.
+	 * <p>
+	 * If the round trip time is used as the latency, this is the smoothed
+	 * round trip time instead.
 	 * 
 	 * @return the average latency for the peer.
+	 * @see #enableRoundTripTimeLatency(boolean)
 	 */
 	public final long getLatency() {
 		return this.latency;
@@ -571,47 +1821,74 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET}, an
 	 *             encapsulated packet found inside of it is split, and adding
 	 *             it to the split queue would cause it to overflow.
+	 * @throws ReliableWindowOverflowException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET} and the
+	 *             message index of a reliable encapsulated packet found inside
+	 *             of it is too far ahead of the reliable message window.
+	 * @throws OrderingWindowOverflowException
+	 *             if the packet is a {@link CustomPacket CUSTOM_PACKET} and the
+	 *             order index of an ordered encapsulated packet found inside of
+	 *             it is too far ahead of the ordering window of its channel.
 	 */
-	public final void handleInternal(RakNetPacket packet)
-			throws NullPointerException, InvalidChannelException, SplitQueueOverflowException {
+	public final void handleInternal(RakNetPacket packet) throws NullPointerException, InvalidChannelException,
+			SplitQueueOverflowException, ReliableWindowOverflowException, OrderingWindowOverflowException {
 		if (packet == null) {
 			throw new NullPointerException("Packet cannot be null");
 		}
 		long currentTime = this.lastPacketReceiveTime = System.currentTimeMillis();
+		this.wake(); // Received packets can always lead to more being sent
 		if (currentTime - lastPacketsReceivedThisSecondResetTime >= 1000L) {
 			this.packetsReceivedThisSecond = 0;
 			this.lastPacketsReceivedThisSecondResetTime = currentTime;
 		}
 		this.packetsReceivedThisSecond++;
 		if (packet.getId() >= ID_CUSTOM_0 && packet.getId() <= ID_CUSTOM_F) {
-			CustomPacket custom = new CustomPacket(packet);
-			custom.decode();
-
 			/*
-			 * We send an ACK packet as soon as we get the packet. This is
-			 * because sometimes handling a packet takes longer than expected
-			 * (or longer than the recovery send interval time). If this
-			 * happens, it will cause the other side to resend a packet that we
-			 * already got. If the resend time is too low, this can end up
-			 * causing the other side to also spam us without meaning to.
+			 * We queue the ACK as soon as we get the packet, rather than after
+			 * it has been handled. The queued records are sent by the update
+			 * method, which condenses every sequence number received within
+			 * the acknowledge delay into as few ACK packets as possible. This
+			 * keeps slow packet handling from causing the other side to resend
+			 * packets we already got, without sending an ACK packet for every
+			 * single custom packet received.
+			 * 
+			 * Duplicate custom packets are acknowledged again in case the
+			 * original ACK packet was lost, but are never decoded. Custom
+			 * packets that arrive late are handled as long as they are still
+			 * within the receive window.
 			 */
-			this.sendAcknowledge(true, new Record(custom.sequenceId));
+			int sequenceId = CustomPacket.getSequenceId(packet);
+			if (acknowledgeQueueSize <= 0 && notAcknowledgeQueue.isEmpty()) {
+				this.acknowledgeQueueTime = currentTime;
+			}
+			if (acknowledgeQueueSize >= acknowledgeQueue.length) {
+				this.acknowledgeQueue = Arrays.copyOf(acknowledgeQueue, acknowledgeQueue.length * 2);
+			}
+			acknowledgeQueue[acknowledgeQueueSize++] = sequenceId;
+			if (receiveWindow.isDuplicate(sequenceId)) {
+				logger.trace("Dropped duplicate custom packet with sequence number " + sequenceId);
+				return;
+			}
+			receiveWindow.add(sequenceId, currentTime, notAcknowledgeQueue);
+			CustomPacket custom = new CustomPacket(packet);
+			custom.decode();
+			boolean deferred = false;
+			for (EncapsulatedPacket encapsulated : custom.messages) {
+				if (!this.handleEncapsulated(encapsulated)) {
+					deferred = true;
+				}
+			}
 
 			/*
-			 * NACK must be generated first before the peer data is updated,
-			 * otherwise the data needed to know which packets have been lost
-			 * will have been overwritten.
+			 * If a reliable chunk could not be stored because the shared split
+			 * budget has been used up, the custom packet is not acknowledged.
+			 * The peer will resend its messages later on, which slows it down
+			 * through its congestion control rather than disconnecting it. The
+			 * messages that were handled are dropped as duplicates then.
 			 */
-			int skipped = custom.sequenceId - receiveSequenceNumber - 1;
-			if (skipped > 0) {
-				this.sendAcknowledge(false, skipped == 1 ? new Record(custom.sequenceId - 1)
-						: new Record(receiveSequenceNumber + 1, custom.sequenceId - 1));
-			}
-			if (custom.sequenceId > receiveSequenceNumber - 1) {
-				this.receiveSequenceNumber = custom.sequenceId;
-				for (EncapsulatedPacket encapsulated : custom.messages) {
-					this.handleEncapsulated(encapsulated);
-				}
+			if (deferred == true && acknowledgeQueueSize > 0
+					&& acknowledgeQueue[acknowledgeQueueSize - 1] == sequenceId) {
+				this.acknowledgeQueueSize--;
 			}
 			logger.trace("Handled custom packet with sequence number " + custom.sequenceId);
 		} else if (packet.getId() == ID_NACK) {
@@ -623,54 +1900,85 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 			 * they only send a NACK packet once. This makes implementation
 			 * easier. However, this can make this code look a bit whacky.
 			 * 
-			 * What's happening here is we are getting the old sequence numbers
-			 * of the lost packets and then creating an array to store the new
-			 * ones in. The new sequence number is found when sending the custom
-			 * packet containing the lost data without updating the recovery
-			 * queue.
-			 * 
-			 * As a final step, we rename the keys in the recovery queue from
-			 * the old sequence number to the new sequence number after all the
-			 * packets that were lost in transmission were resent. We do not
-			 * remove them from the recovery queue until the peer has responded
-			 * with an ACK packet.
+			 * What's happening here is we are removing the lost packets from
+			 * the recovery queue and moving their reliable messages to the
+			 * resend queue. The messages in the resend queue are sent before
+			 * any new messages, packed together with other messages into new
+			 * custom packets. Once they have been sent again, they are stored
+			 * in the recovery queue under the sequence number of their new
+			 * custom packet until the peer has responded with an ACK packet.
 			 */
-			for (int i = 0; i < notAcknowledged.records.length; i++) {
-				Record record = notAcknowledged.records[i];
-
-				// Notify peer of packets lost in transmission
-				Iterator<EncapsulatedPacket> ackReceiptPacketsI = ackReceiptPackets.keySet().iterator();
-				while (ackReceiptPacketsI.hasNext()) {
-					EncapsulatedPacket encapsulated = ackReceiptPacketsI.next();
-					int encapsulatedRecordIndex = ackReceiptPackets.get(encapsulated).intValue();
-					if (record.getIndex() == encapsulatedRecordIndex) {
-						this.onNotAcknowledge(record, encapsulated);
-						encapsulated.ackRecord = null;
-						ackReceiptPackets.remove(encapsulated);
+			for (Record record : notAcknowledged.records) {
+				for (int sequenceId : this.getPendingSequenceIds(record)) {
+					// Notify peer of packets lost in transmission
+					EncapsulatedPacket[] receipts = ackReceiptPackets.remove(sequenceId);
+					if (receipts != null) {
+						Record lostRecord = new Record(sequenceId);
+						for (EncapsulatedPacket encapsulated : receipts) {
+							this.onNotAcknowledge(lostRecord, encapsulated);
+							encapsulated.ackRecord = null;
+						}
 					}
-				}
 
-				// Resend packets lost in transmission
-				EncapsulatedPacket[] lost = recoveryQueue.remove(record.getIndex());
-				if (lost != null) {
-					recoveryQueue.put(this.sendCustomPacket(false, lost), lost);
+					// Resend packets lost in transmission
+					RecoveryPacket lost = recoveryQueue.remove(sequenceId);
+					if (lost != null) {
+						this.bytesInFlight -= lost.size;
+						congestionControl.onNotAcknowledge(currentTime, lost.size);
+						resendQueue.addAll(Arrays.asList(lost.messages));
+					}
 				}
 			}
 		} else if (packet.getId() == ID_ACK) {
 			AcknowledgedPacket acknowledged = new AcknowledgedPacket(packet);
 			acknowledged.decode();
 			for (Record record : acknowledged.records) {
-				Iterator<EncapsulatedPacket> ackReceiptPacketsI = ackReceiptPackets.keySet().iterator();
-				while (ackReceiptPacketsI.hasNext()) {
-					EncapsulatedPacket encapsulated = ackReceiptPacketsI.next();
-					int encapsulatedRecordIndex = ackReceiptPackets.get(encapsulated).intValue();
-					if (record.getIndex() == encapsulatedRecordIndex) {
-						this.onAcknowledge(record, encapsulated);
-						encapsulated.ackRecord = null;
-						ackReceiptPacketsI.remove();
+				for (int sequenceId : this.getPendingSequenceIds(record)) {
+					/*
+					 * Only custom packets that did not contain any
+					 * retransmitted messages are used to measure the round
+					 * trip time (Karn's rule).
+					 */
+					RecoveryPacket received = recoveryQueue.remove(sequenceId);
+					if (received != null) {
+						long roundTripTime = -1;
+						if (received.retransmission == false) {
+							roundTripTime = Math.max(0, currentTime - received.sendTime);
+							this.updateRoundTripTime(roundTripTime);
+						}
+						this.bytesInFlight -= received.size;
+						congestionControl.onAcknowledge(currentTime, received.size, roundTripTime,
+								received.continuousSend);
+					}
+
+					// Notify peer of received packets
+					EncapsulatedPacket[] receipts = ackReceiptPackets.remove(sequenceId);
+					if (receipts != null) {
+						Record receivedRecord = new Record(sequenceId);
+						for (EncapsulatedPacket encapsulated : receipts) {
+							this.onAcknowledge(receivedRecord, encapsulated);
+							encapsulated.ackRecord = null;
+						}
+					}
+
+					/*
+					 * The payloads of split packets are slices of the
+					 * original payload, which can be released now that the
+					 * peer has received them. This returns the references
+					 * the slices retained on the original payload, which is
+					 * still owned by the sender. The cached encodings of the
+					 * messages will never be resent, so they are released as
+					 * well.
+					 */
+					if (received != null) {
+						for (EncapsulatedPacket encapsulated : received.messages) {
+							if (!streamChunks.isEmpty()) {
+								this.acknowledgeStreamChunk(encapsulated);
+							}
+							this.discard(encapsulated);
+						}
 					}
 				}
-				recoveryQueue.remove(record.getIndex());
 			}
 			logger.trace("Handled ACK packet with " + acknowledged.records.length + " record"
 					+ (acknowledged.records.length == 1 ? "" : "s") + " " + Arrays.toString(acknowledged.records));
@@ -678,6 +1986,43 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		logger.trace("Handled " + RakNetPacket.getName(packet));
 	}
 
+	/**
+	 * Returns the sequence numbers within the specified record of the custom
+	 * packets that are still waiting for an <code>ACK</code> or
+	 * <code>NACK</code> packet.
+	 * <p>
+	 * If the record covers more sequence numbers than there are custom packets
+	 * waiting, only the sequence numbers of the waiting custom packets are
+	 * returned. This way, a record with an enormous range does not cause every
+	 * sequence number within it to be looked up.
+	 * 
+	 * @param record
+	 *            the record.
+	 * @return the sequence numbers within the record that may still be
+	 *         waiting, sorted in ascending order.
+	 */
+	private final int[] getPendingSequenceIds(Record record) {
+		int pending = recoveryQueue.size() + ackReceiptPackets.size();
+		if (record.size() <= pending) {
+			return record.getSequenceIds();
+		}
+		int[] sequenceIds = new int[pending];
+		int size = 0;
+		for (int sequenceId : recoveryQueue.keySet()) {
+			if (size < sequenceIds.length && record.contains(sequenceId)) {
+				sequenceIds[size++] = sequenceId;
+			}
+		}
+		for (int sequenceId : ackReceiptPackets.keySet()) {
+			if (size < sequenceIds.length && record.contains(sequenceId) && !recoveryQueue.containsKey(sequenceId)) {
+				sequenceIds[size++] = sequenceId;
+			}
+		}
+		sequenceIds = Arrays.copyOf(sequenceIds, size);
+		Arrays.sort(sequenceIds);
+		return sequenceIds;
+	}
+
 	/**
 	 * Handles an {@link EncapsulatedPacket}.
 	 * 
@@ -688,56 +2033,59 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * @throws InvalidChannelException
 	 *             if the channel of the <code>encapsulated</code> packet is
 	 *             greater than or equal to {@value RakNet#CHANNEL_COUNT}.
+	 * @return <code>true</code> if the <code>encapsulated</code> packet was
+	 *         handled or dropped, <code>false</code> if it is a reliable chunk
+	 *         of a split packet which could not be stored because the shared
+	 *         split budget has been used up, and must be received again.
 	 * @throws SplitQueueOverflowException
 	 *             if the <code>encapsulated</code> packet is split, and adding
 	 *             it to the split queue would cause it to overflow.
+	 * @throws ReliableWindowOverflowException
+	 *             if the <code>encapsulated</code> packet is reliable and its
+	 *             message index is too far ahead of the reliable message
+	 *             window.
+	 * @throws OrderingWindowOverflowException
+	 *             if the <code>encapsulated</code> packet is ordered and its
+	 *             order index is too far ahead of the ordering window of its
+	 *             channel.
 	 */
-	private final void handleEncapsulated(EncapsulatedPacket encapsulated)
-			throws InvalidChannelException, SplitQueueOverflowException {
+	private final boolean handleEncapsulated(EncapsulatedPacket encapsulated) throws InvalidChannelException,
+			SplitQueueOverflowException, ReliableWindowOverflowException, OrderingWindowOverflowException {
 		if (encapsulated == null) {
 			throw new NullPointerException("Encapsulated packet cannot be null");
 		} else if (encapsulated.orderChannel >= RakNet.CHANNEL_COUNT) {
 			throw new InvalidChannelException(encapsulated.orderChannel);
 		} else if (encapsulated.split == true) {
-			if (!splitQueue.containsKey(encapsulated.splitId)) {
-				splitQueue.put(encapsulated.splitId, new EncapsulatedPacket.Split(encapsulated.splitId,
-						encapsulated.splitCount, encapsulated.reliability));
-
-				/**
-				 * If the split queue is greater than the maximum amount of
-				 * packets that can be split, remove all unreliable split
-				 * packets. If the split queue is still too big, then the queue
-				 * has been overloaded.
-				 */
-				if (splitQueue.size() > MAX_SPLITS_PER_QUEUE) {
-					Iterator<EncapsulatedPacket.Split> splitQueueI = splitQueue.values().iterator();
-					int removeCount = 0;
-					while (splitQueueI.hasNext()) {
-						EncapsulatedPacket.Split splitPacket = splitQueueI.next();
-						if (!splitPacket.getReliability().isReliable()) {
-							splitQueueI.remove();
-							removeCount++;
-						}
-					}
-					if (removeCount > 0) {
-						logger.warn("Removed " + removeCount
-								+ " unreliable packets from the split queue due to an overflowing split queue");
-					}
-					if (splitQueue.size() > MAX_SPLITS_PER_QUEUE) {
-						throw new SplitQueueOverflowException();
-					}
-				}
+			/*
+			 * Every chunk of a reliable split packet has its own message
+			 * index. If a chunk is received more than once, such as when it
+			 * has been resent after its original custom packet arrived late,
+			 * it must be dropped before it reaches the split queue. The
+			 * message index is only marked as received once the split queue
+			 * has stored the chunk, as a deferred chunk will be resent.
+			 */
+			boolean reliable = encapsulated.reliability.isReliable();
+			if (reliable == true && reliablePackets.contains(encapsulated.messageIndex)) {
+				logger.trace("Dropped duplicate split encapsulated packet with message index "
+						+ encapsulated.messageIndex);
+				return true;
+			}
+			EncapsulatedPacket stitched = splitQueue.update(encapsulated, System.currentTimeMillis());
+			if (stitched == SplitReassembler.DEFERRED) {
+				return false;
+			} else if (reliable == true) {
+				reliablePackets.add(encapsulated.messageIndex);
 			}
-			EncapsulatedPacket stitched = splitQueue.get(encapsulated.splitId).update(encapsulated);
 			if (stitched != null) {
-				splitQueue.remove(encapsulated.splitId);
 				this.handleEncapsulated(stitched);
 			}
-		} else if (!encapsulated.reliability.isReliable()
-				|| (encapsulated.reliability.isReliable() && !reliablePackets.contains(encapsulated.messageIndex))) {
+		} else if (!encapsulated.reliability.isReliable() || encapsulated.splitCount > 0
+				|| reliablePackets.add(encapsulated.messageIndex)) {
 			/*
 			 * Determine if the message should be handled based on its
-			 * reliability.
+			 * reliability. Stitched split packets are not checked against
+			 * the reliable message window, as the message indexes of their
+			 * chunks have already been checked.
 			 * 
 			 * If the message is ordered, only handle it when all the messages
 			 * before it on the channel have also been received and are ready to
@@ -749,25 +2097,47 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 			 * If the message is neither ordered nor sequenced, then it is
 			 * handled regardless.
 			 */
-			reliablePackets.add(encapsulated.messageIndex);
 			if (encapsulated.reliability.isOrdered()) {
-				handleQueue.get(encapsulated.orderChannel).put(encapsulated.orderIndex, encapsulated);
-				while (handleQueue.get(encapsulated.orderChannel)
-						.containsKey(orderReceiveIndex[encapsulated.orderChannel])) {
-					this.handleMessage0(encapsulated.orderChannel,
-							new RakNetPacket(handleQueue.get(encapsulated.orderChannel)
-									.remove(orderReceiveIndex[encapsulated.orderChannel]++).payload));
+				/*
+				 * Messages received in order are handled right away. Messages
+				 * received ahead of time wait in the ordering window of their
+				 * channel, and messages from before the next order index have
+				 * already been handled and are dropped.
+				 */
+				int channel = encapsulated.orderChannel;
+				int offset = SerialNumber.difference(encapsulated.orderIndex, orderReceiveIndex[channel]);
+				if (offset == 0) {
+					orderReceiveIndex[channel] = SerialNumber.next(orderReceiveIndex[channel]);
+					this.handleMessage0(channel, new RakNetPacket(encapsulated.payload));
+					EncapsulatedPacket next = null;
+					while (handleQueue[channel] != null
+							&& (next = handleQueue[channel].poll(orderReceiveIndex[channel])) != null) {
+						orderReceiveIndex[channel] = SerialNumber.next(orderReceiveIndex[channel]);
+						this.handleMessage0(channel, new RakNetPacket(next.payload));
+					}
+				} else if (offset > 0) {
+					if (handleQueue[channel] == null) {
+						handleQueue[channel] = new OrderingWindow();
+					}
+					handleQueue[channel].put(offset, encapsulated);
+				}
+			} else if (encapsulated.reliability.isSequenced()) {
+				/*
+				 * Sequenced messages older than the newest one received on
+				 * the channel are dropped, rather than handled late.
+				 */
+				int channel = encapsulated.orderChannel;
+				if (SerialNumber.isNewer(encapsulated.orderIndex, sequenceReceiveIndex[channel])) {
+					sequenceReceiveIndex[channel] = encapsulated.orderIndex;
+					this.handleMessage0(channel, new RakNetPacket(encapsulated.payload));
 				}
-			} else if (encapsulated.reliability.isSequenced()
-					&& encapsulated.orderIndex > sequenceReceiveIndex[encapsulated.orderChannel]) {
-				sequenceReceiveIndex[encapsulated.orderChannel] = encapsulated.orderIndex;
-				this.handleMessage0(encapsulated.orderChannel, new RakNetPacket(encapsulated.payload));
 			} else {
 				this.handleMessage0(encapsulated.orderChannel, new RakNetPacket(encapsulated.payload));
 			}
 		}
 		logger.trace("Handled " + (encapsulated.split ? "split " : "") + "encapsulated packet with "
 				+ encapsulated.reliability + " reliability on channel " + encapsulated.orderChannel);
+		return true;
 	}
 
 	/**
@@ -800,7 +2170,7 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 			pong.timestamp = ping.timestamp;
 			pong.timestampPong = this.getTimestamp();
 			pong.encode();
-			this.sendMessage(Reliability.UNRELIABLE, pong);
+			this.sendMessage(Reliability.UNRELIABLE, Priority.IMMEDIATE, pong);
 		} else if (packet.getId() == ID_CONNECTED_PONG) {
 			ConnectedPong pong = new ConnectedPong(packet);
 			pong.decode();
@@ -836,6 +2206,15 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 					logger.debug("Cleared overdue ping response with timestamp " + timestamp);
 				}
 			}
+		} else if (packet.getId() == ID_FILE_LIST_TRANSFER_FILE && streamsEnabled == true) {
+			StreamChunk chunk = new StreamChunk(packet);
+			chunk.decode();
+			if (chunk.data.size() > 0) {
+				this.handleStreamData(chunk.streamId, channel, chunk.data);
+			}
+			if (chunk.state != StreamChunk.STATE_DATA) {
+				this.onStreamEnd(chunk.streamId, channel, chunk.state == StreamChunk.STATE_END);
+			}
 		} else {
 			this.handleMessage(packet, channel);
 		}
@@ -846,7 +2225,9 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * Sends a message over the channel raw.
 	 * <p>
 	 * This will automatically update the <code>lastPacketSendTime</code> and
-	 * <code>packetsSentThisSecond</code> variable.
+	 * <code>packetsSentThisSecond</code> variable. When called on the event
+	 * loop of the peer, the message is flushed along with every other message
+	 * written during the same pass of the event loop.
 	 * 
 	 * @param buf
 	 *            the buffer.
@@ -857,7 +2238,7 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		if (buf == null) {
 			throw new NullPointerException("Buffer cannot be null");
 		}
-		channel.writeAndFlush(new DatagramPacket(buf, address));
+		DatagramBatch.write(channel, buf, address);
 		long currentTime = System.currentTimeMillis();
 		if (currentTime - lastPacketsSentThisSecondResetTime >= 1000L) {
 			this.packetsSentThisSecond = 0;
@@ -888,25 +2269,29 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	}
 
 	/**
-	 * Sends a {@link CustomFourPacket} to the peer with the specified
+	 * Sends a {@link CustomPacket} to the peer with the specified
 	 * {@link EncapsulatedPacket encapsulated packets}.
+	 * <p>
+	 * The custom packet is sent with the <i>continuous send</i> flag set if
+	 * there are still messages waiting in the send or resend queue, and with
+	 * the <i>needs B and AS</i> flag set if the congestion control is in slow
+	 * start.
 	 * 
-	 * @param updateRecoveryQueue
-	 *            <code>true</code> if the the encapsulated packets should be
-	 *            stored in the recovery queue for later, <code>false</code>
-	 *            otherwise. This should only be <code>true</code> when sending
-	 *            a group of packets for the first time, rather than resending
-	 *            old data that the peer has reported to be lost in
-	 *            transmission.
+	 * @param retransmission
+	 *            <code>true</code> if any of the encapsulated packets are
+	 *            being resent after being lost in transmission,
+	 *            <code>false</code> if they are all being sent for the first
+	 *            time. The round trip time is not measured from
+	 *            retransmissions.
 	 * @param messages
 	 *            the packets to send.
-	 * @return the sequence number of the {@link CustomFourPacket}.
+	 * @return the sequence number of the {@link CustomPacket}.
 	 * @throws NullPointerException
 	 *             if the <code>messages</code> are <code>null</code>.
 	 * @throws IllegalArgumentException
 	 *             if the <code>messages</code> array is empty.
 	 */
-	private final int sendCustomPacket(boolean updateRecoveryQueue, EncapsulatedPacket... messages)
+	private final int sendCustomPacket(boolean retransmission, EncapsulatedPacket... messages)
 			throws NullPointerException, IllegalArgumentException {
 		if (messages == null) {
 			throw new NullPointerException("Messages cannot be null");
@@ -915,44 +2300,90 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		}
 
 		// Encode custom packet
-		CustomFourPacket custom = new CustomFourPacket();
-		custom.sequenceId = this.sendSequenceNumber++;
+		CustomPacket custom = new CustomPacket(this.hasQueuedMessages(System.currentTimeMillis()),
+				congestionControl.isInSlowStart());
+		custom.sequenceId = this.sendSequenceNumber;
+		this.sendSequenceNumber = SerialNumber.next(sendSequenceNumber);
 		custom.messages = messages;
-		custom.encode();
 
-		// Save packets that require acknowledgement receipts for later
-		for (EncapsulatedPacket packet : custom.ackMessages) {
-			EncapsulatedPacket clone = packet.getClone();
-			if (!clone.reliability.requiresAck()) {
-				throw new IllegalArgumentException("Invalid reliability " + packet.reliability);
+		/*
+		 * Reliable messages are encoded once into a pooled buffer the first
+		 * time they are sent. If they are lost in transmission, only the
+		 * sequence number of the custom packet they are resent in changes,
+		 * so the cached bytes are reused as is rather than having every
+		 * message encoded again. The cached bytes are released once the
+		 * message has been acknowledged.
+		 */
+		for (EncapsulatedPacket message : messages) {
+			if (message.reliability.isReliable()) {
+				message.cacheEncoding();
 			}
-			clone.ackRecord = packet.ackRecord;
-			ackReceiptPackets.put(clone, clone.ackRecord.getIndex());
 		}
+		custom.encode();
 
-		// Send packet
-		this.sendNettyMessage(custom);
-		if (updateRecoveryQueue == true) {
-			ArrayList<EncapsulatedPacket> reliable = new ArrayList<EncapsulatedPacket>();
-			for (EncapsulatedPacket packet : custom.messages) {
-				if (packet.reliability.isReliable()) {
-					reliable.add(packet);
+		/*
+		 * Save packets that require acknowledgement receipts for later. These
+		 * are indexed by the sequence number of the custom packet they were
+		 * sent in, so they can be found directly when an ACK or NACK packet
+		 * with a record for the sequence number is received.
+		 */
+		if (custom.ackMessages.length > 0) {
+			EncapsulatedPacket[] receipts = new EncapsulatedPacket[custom.ackMessages.length];
+			for (int i = 0; i < receipts.length; i++) {
+				EncapsulatedPacket packet = custom.ackMessages[i];
+				EncapsulatedPacket clone = packet.getClone();
+				if (!clone.reliability.requiresAck()) {
+					throw new IllegalArgumentException("Invalid reliability " + packet.reliability);
 				}
+				clone.ackRecord = packet.ackRecord;
+				receipts[i] = clone;
 			}
-			if (reliable.size() > 0) {
-				recoveryQueue.put(custom.sequenceId, reliable.toArray(new EncapsulatedPacket[reliable.size()]));
+			ackReceiptPackets.put(custom.sequenceId, receipts);
+		}
+
+		/*
+		 * The packet must be stored in the recovery queue before it is sent.
+		 * Otherwise, the peer could acknowledge the packet before it has been
+		 * stored, and its reliable messages would be retransmitted for no
+		 * reason.
+		 */
+		long currentTime = System.currentTimeMillis();
+		ArrayList<EncapsulatedPacket> reliable = new ArrayList<EncapsulatedPacket>();
+		for (EncapsulatedPacket packet : custom.messages) {
+			if (packet.reliability.isReliable()) {
+				reliable.add(packet);
 			}
 		}
+		RecoveryPacket recovery = new RecoveryPacket(custom, reliable.toArray(new EncapsulatedPacket[reliable.size()]),
+				currentTime, retransmission, currentTime + retransmissionTimeout);
+		this.bytesInFlight += recovery.size;
+		pacer.onSend(recovery.size);
+		recoveryQueue.put(custom.sequenceId, recovery);
+		retransmitQueue.add(recovery);
+
+		// Send packet
+		this.sendNettyMessage(custom);
 		logger.trace("Sent custom packet containing " + custom.messages.length + " encapsulated packet"
 				+ (custom.messages.length == 1 ? "" : "s") + " with sequence number " + custom.sequenceId);
-		for (int i = 0; i < custom.messages.length; i++) {
+		for (int i = 0; i < custom.messages.length && logger.isTraceEnabled(); i++) {
 			if (custom.messages[i].payload.size() > 0) {
 				logger.trace("\tID of packet " + i + ": "
-						+ RakNetPacket.getName(custom.messages[i].payload.array()[0] & 0xFF));
+						+ RakNetPacket.getName(custom.messages[i].payload.buffer().getUnsignedByte(0)));
 			} else {
 				logger.trace("\tID packet " + i + ": none (payload length is 0)");
 			}
 		}
+
+		/*
+		 * Unreliable split packets will never be sent again, so their payloads
+		 * can be released as soon as they have been sent. Reliable split
+		 * packets are released once they have been acknowledged.
+		 */
+		for (EncapsulatedPacket encapsulated : custom.messages) {
+			if (encapsulated.split == true && !encapsulated.reliability.isReliable()) {
+				encapsulated.payload.release();
+			}
+		}
 		return custom.sequenceId;
 	}
 
@@ -979,63 +2410,797 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		} else if (records.length <= 0) {
 			throw new IllegalArgumentException("There must be a record to send");
 		}
-		AcknowledgedPacket acknowledged = acknowledge == true ? new AcknowledgedPacket() : new NotAcknowledgedPacket();
-		acknowledged.records = records;
-		acknowledged.encode();
-		this.sendNettyMessage(acknowledged);
-		logger.trace("Sent " + acknowledged.records.length + " record" + (acknowledged.records.length == 1 ? "" : "s")
-				+ " in " + (acknowledged.isAcknowledgement() ? "ACK" : "NACK") + " packet");
+		records = Record.condense(records);
+
+		/*
+		 * The records are split up into as many packets as needed for each
+		 * packet to fit within the maximum transfer unit of the peer.
+		 */
+		int start = 0;
+		while (start < records.length) {
+			int end = start;
+			int size = AcknowledgedPacket.MINIMUM_SIZE;
+			while (end < records.length && (end == start
+					|| size + AcknowledgedPacket.size(records[end]) <= maximumTransferUnit)) {
+				size += AcknowledgedPacket.size(records[end++]);
+			}
+			AcknowledgedPacket acknowledged = acknowledge == true ? new AcknowledgedPacket()
+					: new NotAcknowledgedPacket();
+			acknowledged.records = Arrays.copyOfRange(records, start, end);
+			acknowledged.encode();
+			this.sendNettyMessage(acknowledged);
+			logger.trace("Sent " + acknowledged.records.length + " record"
+					+ (acknowledged.records.length == 1 ? "" : "s") + " in "
+					+ (acknowledged.isAcknowledgement() ? "ACK" : "NACK") + " packet");
+			start = end;
+		}
 	}
 
-	@Override
-	public final EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
-			throws NullPointerException, InvalidChannelException {
-		if (reliability == null) {
-			throw new NullPointerException("Reliability cannot be null");
-		} else if (packet == null) {
-			throw new NullPointerException("Packet cannot be null");
-		} else if (channel >= RakNet.CHANNEL_COUNT) {
-			throw new InvalidChannelException(channel);
+	/**
+	 * Sends the <code>ACK</code> and <code>NACK</code> packets for all custom
+	 * packets that have been queued to be acknowledged.
+	 * <p>
+	 * Unless <code>force</code> is <code>true</code>, nothing will be sent
+	 * until either the acknowledge delay has passed since the oldest record was
+	 * queued or the amount of queued sequence numbers has reached the
+	 * acknowledge threshold.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @param force
+	 *            <code>true</code> if the queued records should be sent
+	 *            regardless of the acknowledge delay and threshold,
+	 *            <code>false</code> otherwise.
+	 */
+	private final void sendQueuedAcknowledgements(long currentTime, boolean force) {
+		int[] acknowledge = null;
+		Record[] notAcknowledge = null;
+		if (acknowledgeQueueSize <= 0 && notAcknowledgeQueue.isEmpty()) {
+			return; // Nothing to send
+		} else if (force == false && currentTime - acknowledgeQueueTime < acknowledgeDelay
+				&& acknowledgeQueueSize < acknowledgeThreshold) {
+			return; // Wait for more records
+		}
+		if (acknowledgeQueueSize > 0) {
+			acknowledge = Arrays.copyOf(acknowledgeQueue, acknowledgeQueueSize);
+			this.acknowledgeQueueSize = 0;
+		}
+		if (!notAcknowledgeQueue.isEmpty()) {
+			notAcknowledge = notAcknowledgeQueue.toArray(new Record[notAcknowledgeQueue.size()]);
+			notAcknowledgeQueue.clear();
 		}
 
-		// Generate encapsulated packet
+		/*
+		 * The NACK packets must be sent before the ACK packets. If a custom
+		 * packet arrived late, its sequence number can be in both, and the
+		 * other side would discard the lost data from its recovery queue when
+		 * handling the ACK before it could be resent for the NACK.
+		 */
+		if (notAcknowledge != null) {
+			this.sendAcknowledge(false, notAcknowledge);
+		}
+		if (acknowledge != null) {
+			Arrays.sort(acknowledge);
+			this.sendAcknowledge(true, Record.condense(acknowledge));
+		}
+	}
+
+	/**
+	 * Creates an {@link EncapsulatedPacket} for a message that is about to be
+	 * sent.
+	 * <p>
+	 * The message index and the order or sequence index are not assigned
+	 * here, as they can only be bumped by the event loop of the peer. They are
+	 * assigned with the {@link #bumpIndexes(EncapsulatedPacket)} method once
+	 * the message is about to be queued.
+	 * 
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the encapsulated packet.
+	 */
+	private final EncapsulatedPacket createMessage(Reliability reliability, int channel, Packet packet) {
 		EncapsulatedPacket encapsulated = new EncapsulatedPacket();
 		encapsulated.reliability = reliability;
 		encapsulated.orderChannel = (byte) channel;
 		encapsulated.payload = packet;
+		encapsulated.queueTime = System.currentTimeMillis();
+		return encapsulated;
+	}
+
+	/**
+	 * Bumps the message index and the order or sequence index of the channel
+	 * as needed by the specified message, and assigns them to it.
+	 * 
+	 * @param encapsulated
+	 *            the encapsulated packet.
+	 */
+	private final void bumpIndexes(EncapsulatedPacket encapsulated) {
+		Reliability reliability = encapsulated.reliability;
 		if (reliability.isReliable()) {
 			encapsulated.messageIndex = this.bumpMessageIndex();
-			logger.trace("Bumped message index from " + encapsulated.messageIndex + " to " + messageIndex);
 		}
 		if (reliability.isOrdered() || reliability.isSequenced()) {
-			encapsulated.orderIndex = reliability.isOrdered() ? orderSendIndex[channel]++
-					: sequenceSendIndex[channel]++;
+			int channel = encapsulated.orderChannel;
+			int[] sendIndex = reliability.isOrdered() ? orderSendIndex : sequenceSendIndex;
+			encapsulated.orderIndex = sendIndex[channel];
+			sendIndex[channel] = SerialNumber.next(sendIndex[channel]);
 			logger.trace("Bumped " + (reliability.isOrdered() ? "order" : "sequence") + " index from "
-					+ ((reliability.isOrdered() ? orderSendIndex[channel] : sequenceSendIndex[channel]) - 1) + " to "
-					+ (reliability.isOrdered() ? orderSendIndex[channel] : sequenceSendIndex[channel]) + " on channel "
+					+ encapsulated.orderIndex + " to " + SerialNumber.next(encapsulated.orderIndex) + " on channel "
 					+ channel);
 		}
+	}
 
-		// Add to send queue
-		if (encapsulated.needsSplit(this)) {
-			encapsulated.splitId = ++this.splitId % 65536;
-			for (EncapsulatedPacket split : encapsulated.split(this)) {
-				sendQueue.add(split);
+	/**
+	 * Runs the specified task on the event loop of the peer, handing it off
+	 * if this is called from any other thread.
+	 * <p>
+	 * Tasks handed off from other threads are added to a multi-producer
+	 * single-consumer queue, which is drained by the event loop in the order
+	 * the tasks were added. The event loop is only woken up once for every
+	 * batch of tasks that is handed off before it gets to them.
+	 * 
+	 * @param task
+	 *            the task to run.
+	 */
+	protected final void execute(Runnable task) {
+		if (eventLoop.inEventLoop()) {
+			task.run();
+			this.wake();
+			return;
+		}
+		tasks.add(task);
+		if (tasksScheduled.compareAndSet(false, true)) {
+			try {
+				eventLoop.execute(this::runTasks);
+			} catch (RejectedExecutionException e) {
+				tasks.clear();
+				logger.debug("Discarded tasks handed off after the event loop was shutdown");
 			}
-			logger.trace("Split encapsulated packet and added it to the send queue");
-		} else {
-			sendQueue.add(encapsulated);
-			logger.trace("Added encapsulated packet to the send queue");
 		}
-		logger.trace("Sent packet with size of " + packet.size() + " bytes (" + (packet.size() * 8)
-				+ " bits) with reliability " + reliability + " on channel " + channel);
+	}
+
+	/**
+	 * Runs every task that has been handed off to the event loop of the peer.
+	 */
+	private final void runTasks() {
+		tasksScheduled.set(false);
+		Runnable task = null;
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (Throwable cause) {
+				this.onUpdateException(cause);
+			}
+		}
+		this.wake();
+	}
+
+	/**
+	 * Runs the specified task that queues a message on the event loop of the
+	 * peer, and returns the copy of the message that is given back to the
+	 * sender.
+	 * <p>
+	 * If the message was sent from the event loop, it is queued right away and
+	 * the copy has all of its indexes assigned. Otherwise, the copy is made
+	 * before the message is handed off, as the message is modified by the
+	 * event loop once it gets to it. In that case, the copy will not have any
+	 * of the indexes assigned to the message when it was queued. It is also
+	 * not kept as the clone of the message, so the clone which is given to
+	 * {@link #onAcknowledge(Record, EncapsulatedPacket)} and
+	 * {@link #onNotAcknowledge(Record, EncapsulatedPacket)} is only made once
+	 * the indexes have been assigned.
+	 * 
+	 * @param encapsulated
+	 *            the encapsulated packet.
+	 * @param task
+	 *            the task that queues the encapsulated packet.
+	 * @return a copy of the encapsulated packet.
+	 */
+	private final EncapsulatedPacket queueMessage(EncapsulatedPacket encapsulated, Runnable task) {
+		if (eventLoop.inEventLoop()) {
+			task.run();
+			this.wake();
+			return encapsulated.getClone();
+		}
+		EncapsulatedPacket copy = encapsulated.copy();
+		this.execute(task);
+		return copy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Messages with the {@link Priority#IMMEDIATE IMMEDIATE} priority are
+	 * encoded and sent before this method returns when it is called from the
+	 * event loop of the peer, rather than on the next update of the peer. When
+	 * called from any other thread, they are sent as soon as the event loop
+	 * gets to them.
+	 */
+	@Override
+	public final EncapsulatedPacket sendMessage(Reliability reliability, Priority priority, int channel,
+			Packet packet) throws NullPointerException, InvalidChannelException {
+		if (reliability == null) {
+			throw new NullPointerException("Reliability cannot be null");
+		} else if (priority == null) {
+			throw new NullPointerException("Priority cannot be null");
+		} else if (packet == null) {
+			throw new NullPointerException("Packet cannot be null");
+		} else if (channel >= RakNet.CHANNEL_COUNT) {
+			throw new InvalidChannelException(channel);
+		}
+		return this.queueMessage(reliability, priority, channel, packet, 0L);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Expired messages are discarded when the peer is packing messages into
+	 * the next custom packet to send. If the message is split, every chunk of
+	 * it expires at the same time. Messages that expire are counted by the
+	 * peer, and the total can be retrieved with the
+	 * {@link #getExpiredMessageCount()} method.
+	 */
+	@Override
+	public final EncapsulatedPacket sendMessage(Reliability reliability, Priority priority, int channel, Packet packet,
+			long timeToLive) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		if (reliability == null) {
+			throw new NullPointerException("Reliability cannot be null");
+		} else if (priority == null) {
+			throw new NullPointerException("Priority cannot be null");
+		} else if (packet == null) {
+			throw new NullPointerException("Packet cannot be null");
+		} else if (reliability != Reliability.UNRELIABLE && reliability != Reliability.UNRELIABLE_SEQUENCED) {
+			throw new IllegalArgumentException("Only unreliable messages can expire");
+		} else if (timeToLive <= 0) {
+			throw new IllegalArgumentException("Time to live must be greater than 0");
+		} else if (channel >= RakNet.CHANNEL_COUNT) {
+			throw new InvalidChannelException(channel);
+		}
+		return this.queueMessage(reliability, priority, channel, packet, timeToLive);
+	}
+
+	/**
+	 * Adds a message to the send queue of the specified priority, splitting it
+	 * if necessary.
+	 * 
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @param timeToLive
+	 *            how long the packet can wait to be sent in milliseconds,
+	 *            <code>0</code> if it never expires.
+	 * @return the generated encapsulated packet.
+	 */
+	private final EncapsulatedPacket queueMessage(Reliability reliability, Priority priority, int channel,
+			Packet packet, long timeToLive) {
+		EncapsulatedPacket encapsulated = this.createMessage(reliability, channel, packet);
+		if (timeToLive > 0) {
+			encapsulated.expirationTime = encapsulated.queueTime + timeToLive;
+		}
 
 		/*
 		 * Return a copy of the encapsulated packet as if a single variable is
 		 * modified in the encapsulated packet before it is sent, the
 		 * communication with the peer could cease to function entirely.
 		 */
-		return encapsulated.getClone();
+		return this.queueMessage(encapsulated, () -> {
+			// Add to send queue
+			this.bumpIndexes(encapsulated);
+			ArrayDeque<EncapsulatedPacket> queue = sendQueue.get(priority.ordinal());
+			if (encapsulated.needsSplit(this)) {
+				this.splitId = (splitId + 1) & 0xFFFF;
+				encapsulated.splitId = splitId;
+				for (EncapsulatedPacket split : encapsulated.split(this)) {
+					split.queueTime = encapsulated.queueTime;
+					split.expirationTime = encapsulated.expirationTime;
+					queue.add(split);
+				}
+				logger.trace("Split encapsulated packet and added it to the send queue");
+			} else {
+				queue.add(encapsulated);
+				logger.trace("Added encapsulated packet to the send queue");
+			}
+			if (priority == Priority.IMMEDIATE) {
+				this.sendImmediate();
+			}
+			logger.trace("Sent packet with size of " + packet.size() + " bytes (" + (packet.size() * 8)
+					+ " bits) with reliability " + reliability + " and priority " + priority + " on channel "
+					+ channel);
+		});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * When a queued message is replaced, it keeps its place in the send queue,
+	 * the time it was queued at, and its sequence index. Only its contents are
+	 * replaced, so a stream of updates that are sent faster than the peer can
+	 * receive them still gets sent rather than having its place taken over
+	 * and over again, and the messages queued after it are never sequenced
+	 * before it. If the new message is sent with a different reliability or
+	 * on a different channel, the queued message is removed and the new
+	 * message is added to the end of the send queue instead.
+	 * <p>
+	 * When called from the event loop of the peer, the copy returned is that
+	 * of the message which is actually queued.
+	 */
+	@Override
+	public final EncapsulatedPacket sendReplaceableMessage(Object key, Reliability reliability, Priority priority,
+			int channel, Packet packet) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		if (key == null) {
+			throw new NullPointerException("Key cannot be null");
+		} else if (reliability == null) {
+			throw new NullPointerException("Reliability cannot be null");
+		} else if (priority == null) {
+			throw new NullPointerException("Priority cannot be null");
+		} else if (packet == null) {
+			throw new NullPointerException("Packet cannot be null");
+		} else if (reliability != Reliability.UNRELIABLE && reliability != Reliability.UNRELIABLE_SEQUENCED) {
+			throw new IllegalArgumentException("Replaceable messages must be unreliable");
+		} else if (channel >= RakNet.CHANNEL_COUNT) {
+			throw new InvalidChannelException(channel);
+		}
+		EncapsulatedPacket encapsulated = this.createMessage(reliability, channel, packet);
+		if (encapsulated.needsSplit(this)) {
+			throw new IllegalArgumentException("Replaceable messages cannot be split");
+		}
+		encapsulated.replaceKey = key;
+
+		/*
+		 * A queued message can be replaced again later on, so the copy given
+		 * back is never kept as its clone.
+		 */
+		if (eventLoop.inEventLoop()) {
+			EncapsulatedPacket queued = this.queueReplaceableMessage(key, priority, encapsulated);
+			this.wake();
+			return queued.copy();
+		}
+		EncapsulatedPacket copy = encapsulated.copy();
+		this.execute(() -> this.queueReplaceableMessage(key, priority, encapsulated));
+		return copy;
+	}
+
+	/**
+	 * Replaces the queued message with the same key and priority with the
+	 * specified message, or adds it to the send queue if there is none.
+	 * 
+	 * @param key
+	 *            the key of the message.
+	 * @param priority
+	 *            the priority of the message.
+	 * @param encapsulated
+	 *            the encapsulated packet.
+	 * @return the encapsulated packet that is queued.
+	 */
+	private final EncapsulatedPacket queueReplaceableMessage(Object key, Priority priority,
+			EncapsulatedPacket encapsulated) {
+		HashMap<Object, EncapsulatedPacket> queuedReplaceable = replaceable.get(priority.ordinal());
+		ArrayDeque<EncapsulatedPacket> queue = sendQueue.get(priority.ordinal());
+		EncapsulatedPacket queued = queuedReplaceable.get(key);
+		if (queued != null && queued.reliability == encapsulated.reliability
+				&& queued.orderChannel == encapsulated.orderChannel) {
+			queued.payload = encapsulated.payload;
+			logger.trace("Replaced queued message with key " + key);
+		} else {
+			if (queued != null) {
+				queue.remove(queued);
+				logger.trace("Removed queued message with key " + key + " sent with a different reliability or"
+						+ " on a different channel");
+			}
+			this.bumpIndexes(encapsulated);
+			queuedReplaceable.put(key, encapsulated);
+			queue.add(encapsulated);
+			queued = encapsulated;
+			logger.trace("Added replaceable message with key " + key + " to the send queue");
+		}
+		if (priority == Priority.IMMEDIATE) {
+			this.sendImmediate();
+		}
+		return queued;
+	}
+
+	/**
+	 * Enables/disables the receiving of streams.
+	 * <p>
+	 * Streams are sent as <code>FILE_LIST_TRANSFER_FILE</code> messages. When
+	 * enabled, these messages are handled as the chunks of a stream, and
+	 * passed on with the {@link #handleStreamData(int, int, Packet)} and
+	 * {@link #onStreamEnd(int, int, boolean)} methods. When disabled, they are
+	 * passed on with the {@link #handleMessage(RakNetPacket, int)} method like
+	 * any other message. By default, streams are disabled.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable streams, <code>false</code> to
+	 *            disable them.
+	 */
+	public final void enableStreams(boolean enabled) {
+		this.execute(() -> {
+			boolean wasEnabled = streamsEnabled;
+			this.streamsEnabled = enabled;
+			if (wasEnabled != enabled) {
+				logger.debug((enabled ? "Enabled" : "Disabled") + " streams");
+			}
+		});
+	}
+
+	/**
+	 * Returns whether or not the receiving of streams is enabled.
+	 * 
+	 * @return <code>true</code> if streams are enabled, <code>false</code>
+	 *         otherwise.
+	 */
+	public final boolean streamsEnabled() {
+		return this.streamsEnabled;
+	}
+
+	/**
+	 * Sends a stream of data to the peer.
+	 * <p>
+	 * Unlike messages, streams do not need to be available in memory all at
+	 * once, and are not limited in size by the amount of chunks a message can
+	 * be split into. The data is read from the <code>source</code> in chunks
+	 * only when the peer is ready to send them, with each chunk being sent as
+	 * its own {@link Reliability#RELIABLE_ORDERED RELIABLE_ORDERED} message
+	 * that fits in a single custom packet. Messages that are queued to be
+	 * sent always go before the chunks of a stream.
+	 * <p>
+	 * The peer receives the chunks of the stream one at a time in the order
+	 * they were read, followed by a notification once the stream has ended.
+	 * Once all of the data has been read from the <code>source</code>, or the
+	 * stream has failed, the <code>source</code> is closed.
+	 * <p>
+	 * The <code>source</code> is read from by the event loop of the peer, so
+	 * it should never block for long. If the <code>source</code> is in
+	 * non-blocking mode and has no data available, it is read from again
+	 * after a delay which doubles every time no data is available, up to
+	 * {@value #MAX_STREAM_READ_DELAY} milliseconds.
+	 * <p>
+	 * The progress reported to the <code>listener</code> is the amount of data
+	 * the peer has acknowledged, and the stream is only complete once every
+	 * chunk of it has been acknowledged. The peer must have
+	 * {@link #enableStreams(boolean) enabled streams} in order to receive
+	 * them, otherwise the chunks are handled as regular messages.
+	 * 
+	 * @param channel
+	 *            the channel to send the stream on.
+	 * @param source
+	 *            the source of the data to send.
+	 * @param listener
+	 *            the listener to notify of the progress of the stream, may be
+	 *            <code>null</code>.
+	 * @return the ID of the stream.
+	 * @throws NullPointerException
+	 *             if the <code>source</code> is <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @see #cancelStream(int)
+	 */
+	public final int sendStream(int channel, ReadableByteChannel source, StreamListener listener)
+			throws NullPointerException, InvalidChannelException {
+		if (source == null) {
+			throw new NullPointerException("Source cannot be null");
+		} else if (channel >= RakNet.CHANNEL_COUNT) {
+			throw new InvalidChannelException(channel);
+		}
+		int streamId = this.streamId.incrementAndGet() & 0xFFFF;
+		this.execute(() -> {
+			outgoingStreams.add(new OutgoingStream(streamId, channel, source, listener));
+			logger.debug("Started stream with ID " + streamId + " on channel " + channel);
+		});
+		return streamId;
+	}
+
+	/**
+	 * Sends a stream of data to the peer.
+	 * 
+	 * @param channel
+	 *            the channel to send the stream on.
+	 * @param source
+	 *            the source of the data to send.
+	 * @param listener
+	 *            the listener to notify of the progress of the stream, may be
+	 *            <code>null</code>.
+	 * @return the ID of the stream.
+	 * @throws NullPointerException
+	 *             if the <code>source</code> is <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @see #sendStream(int, ReadableByteChannel, StreamListener)
+	 */
+	public final int sendStream(int channel, InputStream source, StreamListener listener)
+			throws NullPointerException, InvalidChannelException {
+		if (source == null) {
+			throw new NullPointerException("Source cannot be null");
+		}
+		return this.sendStream(channel, Channels.newChannel(source), listener);
+	}
+
+	/**
+	 * Cancels a stream that is being sent to the peer. The peer will be
+	 * notified that the stream was aborted, and the listener of the stream
+	 * will be notified of its failure.
+	 * <p>
+	 * If no stream with the ID is being sent by the time the event loop of the
+	 * peer gets to cancelling it, nothing happens.
+	 * 
+	 * @param streamId
+	 *            the ID of the stream.
+	 */
+	public final void cancelStream(int streamId) {
+		this.execute(() -> {
+			for (OutgoingStream stream : outgoingStreams) {
+				if (stream.streamId == streamId && stream.failure == null) {
+					stream.failure = new CancellationException("Stream cancelled");
+					logger.debug("Cancelled stream with ID " + streamId);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns whether or not there are messages waiting to be sent or resent,
+	 * or streams that are ready to be read from.
+	 * <p>
+	 * Streams whose source had no data available the last time it was read
+	 * from are not ready until their read delay has passed.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @return <code>true</code> if there are messages waiting to be sent or
+	 *         resent, or streams that are ready to be read from,
+	 *         <code>false</code> otherwise.
+	 */
+	private final boolean hasQueuedMessages(long currentTime) {
+		if (!resendQueue.isEmpty()) {
+			return true;
+		}
+		for (ArrayDeque<EncapsulatedPacket> queue : sendQueue) {
+			if (!queue.isEmpty()) {
+				return true;
+			}
+		}
+		for (OutgoingStream stream : outgoingStreams) {
+			if (stream.failure != null || stream.readTime <= currentTime) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sends every message with the {@link Priority#IMMEDIATE IMMEDIATE}
+	 * priority right away, without waiting for the congestion window.
+	 */
+	private final void sendImmediate() {
+		ArrayDeque<EncapsulatedPacket> queue = sendQueue.get(Priority.IMMEDIATE.ordinal());
+		while (!queue.isEmpty()) {
+			ArrayList<EncapsulatedPacket> send = new ArrayList<EncapsulatedPacket>();
+			this.pack(queue, send, CustomPacket.MINIMUM_SIZE, System.currentTimeMillis(), false);
+			if (send.isEmpty()) {
+				break; // Nothing could be packed
+			}
+			this.sendCustomPacket(false, send.toArray(new EncapsulatedPacket[send.size()]));
+		}
+	}
+
+	/**
+	 * Returns the priority whose messages should be sent first in the next
+	 * custom packet.
+	 * <p>
+	 * This is determined using smooth weighted round-robin. Every priority
+	 * with messages waiting earns credit equal to its weight, and the priority
+	 * with the most credit is picked and has the total weight subtracted from
+	 * its credit. This way, higher priorities are picked more often according
+	 * to their weight, while lower priorities are still picked regularly.
+	 * 
+	 * @return the priority whose messages should be sent first in the next
+	 *         custom packet, <code>null</code> if there are no messages
+	 *         waiting to be sent.
+	 */
+	private final Priority nextPriority() {
+		Priority next = null;
+		int totalWeight = 0;
+		for (Priority priority : Priority.values()) {
+			if (priority.getWeight() <= 0) {
+				continue; // Not scheduled
+			} else if (sendQueue.get(priority.ordinal()).isEmpty()) {
+				sendCredit[priority.ordinal()] = 0;
+				continue; // No messages waiting
+			}
+			sendCredit[priority.ordinal()] += priority.getWeight();
+			totalWeight += priority.getWeight();
+			if (next == null || sendCredit[priority.ordinal()] > sendCredit[next.ordinal()]) {
+				next = priority;
+			}
+		}
+		if (next != null) {
+			sendCredit[next.ordinal()] -= totalWeight;
+		}
+		return next;
+	}
+
+	/**
+	 * Moves messages from the specified queue to the specified list of
+	 * messages to send, for as long as there is room left in the custom
+	 * packet.
+	 * <p>
+	 * Messages are packed first-fit, meaning messages which do not fit in the
+	 * remaining space are skipped over in favor of later messages which do, up
+	 * to a limit of {@value #PACKING_LOOKAHEAD} skipped messages. If
+	 * <code>coalesce</code> is <code>true</code>, messages that are still
+	 * waiting for the coalescing delay of their channel are only packed if the
+	 * custom packet already has other messages in it.
+	 * 
+	 * @param queue
+	 *            the queue to take messages from.
+	 * @param send
+	 *            the messages to send.
+	 * @param sendLength
+	 *            the size of the custom packet with the messages already in
+	 *            the list.
+	 * @param currentTime
+	 *            the current time.
+	 * @param coalesce
+	 *            <code>true</code> if the coalescing delay of each channel
+	 *            should be respected, <code>false</code> otherwise.
+	 * @return the size of the custom packet with the added messages.
+	 */
+	private final int pack(Queue<EncapsulatedPacket> queue, List<EncapsulatedPacket> send, int sendLength,
+			long currentTime, boolean coalesce) {
+		int skipped = 0;
+		Iterator<EncapsulatedPacket> queueI = queue.iterator();
+		while (queueI.hasNext() && skipped < PACKING_LOOKAHEAD
+				&& maximumTransferUnit - sendLength >= EncapsulatedPacket.MINIMUM_SIZE) {
+			EncapsulatedPacket encapsulated = queueI.next();
+			if (encapsulated.expirationTime > 0 && currentTime >= encapsulated.expirationTime) {
+				queueI.remove();
+				this.discard(encapsulated);
+				this.expiredMessageCount++;
+				continue; // Packet is too old to be sent
+			} else if (sendLength + encapsulated.size() > maximumTransferUnit || (coalesce == true && send.isEmpty()
+					&& currentTime - encapsulated.queueTime < coalescingDelay[encapsulated.orderChannel])) {
+				skipped++;
+				continue; // Packet does not fit or is waiting to be coalesced
+			}
+			sendLength += encapsulated.size();
+			send.add(encapsulated);
+			queueI.remove();
+			if (encapsulated.replaceKey != null) {
+				// No longer able to be replaced
+				for (HashMap<Object, EncapsulatedPacket> queued : replaceable) {
+					queued.remove(encapsulated.replaceKey, encapsulated);
+				}
+			}
+		}
+		return sendLength;
+	}
+
+	/**
+	 * Reads chunks from the streams being sent to the peer and packs them
+	 * into the remaining space of the custom packet being built.
+	 * <p>
+	 * Streams are only read from once every queued message that fits has been
+	 * packed, and only when there is space left in the custom packet being
+	 * built. This way, a stream is read from no faster than the congestion
+	 * control allows for it to be sent, and no more than a single chunk of it
+	 * is ever read ahead of time. Every stream gets a turn to be packed first,
+	 * so that streams being sent at the same time share the connection.
+	 * <p>
+	 * If the source of a stream has no data available, it is not read from
+	 * again until its read delay has passed. The delay doubles every time no
+	 * data is available, up to {@value #MAX_STREAM_READ_DELAY} milliseconds,
+	 * so that a source which is idle does not keep the peer busy.
+	 * 
+	 * @param send
+	 *            the list of messages to be sent in the custom packet.
+	 * @param sendLength
+	 *            the length of the custom packet so far.
+	 * @param currentTime
+	 *            the current time.
+	 * @return the new length of the custom packet.
+	 */
+	private final int packStreams(List<EncapsulatedPacket> send, int sendLength, long currentTime) {
+		int streams = outgoingStreams.size();
+		for (int i = 0; i < streams && !outgoingStreams.isEmpty(); i++) {
+			int size = maximumTransferUnit - sendLength - EncapsulatedPacket.size(Reliability.RELIABLE_ORDERED, false)
+					- StreamChunk.HEADER_SIZE;
+			if (size < (send.isEmpty() ? 0 : MINIMUM_STREAM_CHUNK_SIZE)) {
+				break; // Not enough space left
+			}
+			this.streamCursor = (streamCursor + 1) % outgoingStreams.size();
+			OutgoingStream stream = outgoingStreams.get(streamCursor);
+			if (stream.failure == null && stream.readTime > currentTime) {
+				continue; // Waiting for data to become available
+			}
+
+			// Read chunk
+			StreamChunk chunk = new StreamChunk();
+			chunk.streamId = stream.streamId;
+			if (stream.failure != null) {
+				chunk.state = StreamChunk.STATE_ABORT;
+			} else {
+				ByteBuf data = Unpooled.buffer(size);
+				try {
+					ByteBuffer buffer = data.nioBuffer(0, size);
+					int read = stream.source.read(buffer);
+					if (read < 0) {
+						chunk.state = StreamChunk.STATE_END;
+					} else if (read == 0) {
+						stream.readDelay = Math.min(Math.max(stream.readDelay * 2, UPDATE_INTERVAL),
+								MAX_STREAM_READ_DELAY);
+						stream.readTime = currentTime + stream.readDelay;
+						continue; // No data available yet
+					} else {
+						data.writerIndex(read);
+						chunk.data = new Packet(data);
+						stream.sent += read;
+						stream.readDelay = 0L;
+					}
+				} catch (IOException e) {
+					chunk.state = StreamChunk.STATE_ABORT;
+					stream.failure = e;
+				}
+			}
+			chunk.encode();
+
+			// Pack chunk
+			EncapsulatedPacket encapsulated = this.createMessage(Reliability.RELIABLE_ORDERED, stream.channel, chunk);
+			encapsulated.queueTime = currentTime;
+			this.bumpIndexes(encapsulated);
+			sendLength += encapsulated.size();
+			send.add(encapsulated);
+			if (chunk.state != StreamChunk.STATE_ABORT) {
+				streamChunks.put(encapsulated.messageIndex, stream);
+				stream.unacknowledged++;
+			}
+			if (chunk.state != StreamChunk.STATE_DATA) {
+				outgoingStreams.remove(streamCursor--);
+				stream.close();
+				stream.ended = true;
+			}
+			if (chunk.state == StreamChunk.STATE_ABORT && stream.listener != null) {
+				stream.listener.onFailure(this, stream.streamId, stream.failure);
+			}
+		}
+		return sendLength;
+	}
+
+	/**
+	 * Called when a message that was sent reliably has been acknowledged by
+	 * the peer. If the message is a chunk of a stream, the listener of the
+	 * stream is notified of its progress, and of its completion once every
+	 * chunk of the stream has been acknowledged.
+	 * 
+	 * @param encapsulated
+	 *            the message that was acknowledged.
+	 */
+	private final void acknowledgeStreamChunk(EncapsulatedPacket encapsulated) {
+		OutgoingStream stream = streamChunks.remove(encapsulated.messageIndex);
+		if (stream == null) {
+			return; // Not a chunk of a stream
+		}
+		int size = encapsulated.payload.size() - StreamChunk.HEADER_SIZE;
+		stream.acknowledged += size;
+		stream.unacknowledged--;
+		if (stream.listener != null && stream.failure == null) {
+			if (size > 0) {
+				stream.listener.onProgress(this, stream.streamId, stream.acknowledged);
+			}
+			if (stream.ended == true && stream.unacknowledged <= 0) {
+				stream.listener.onComplete(this, stream.streamId, stream.acknowledged);
+			}
+		}
 	}
 
 	/**
@@ -1050,8 +3215,13 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 * @throws TimeoutException
 	 *             if the peer has timed out and <code>force</code> is
 	 *             <code>false</code>.
+	 * @throws SplitQueueOverflowException
+	 *             if a reliable split packet has gone without receiving a
+	 *             chunk for longer than the split timeout and
+	 *             <code>force</code> is <code>false</code>.
 	 */
-	private final void update(boolean force) throws IllegalStateException, TimeoutException {
+	private final void update(boolean force)
+			throws IllegalStateException, TimeoutException, SplitQueueOverflowException {
 		long currentTime = System.currentTimeMillis();
 		if (force == false) {
 			if (this.isDisconnected()) {
@@ -1061,77 +3231,376 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 			}
 		}
 
+		// Report custom packets that are still missing
+		if (receiveWindow.hasHoles()
+				&& currentTime - receiveWindow.lastNotAcknowledgeTime >= this.getNotAcknowledgeInterval()) {
+			if (receiveWindow.retries >= MAX_NOT_ACKNOWLEDGE_RETRIES) {
+				logger.debug("Gave up on custom packets missing since sequence number "
+						+ receiveWindow.lowestSequenceId);
+				receiveWindow.skipHoles();
+			} else {
+				if (acknowledgeQueueSize <= 0 && notAcknowledgeQueue.isEmpty()) {
+					this.acknowledgeQueueTime = currentTime;
+				}
+				receiveWindow.getHoles(notAcknowledgeQueue);
+				receiveWindow.retries++;
+			}
+			receiveWindow.lastNotAcknowledgeTime = currentTime;
+		}
+
+		// Evict split packets that are no longer receiving chunks
+		if (force == false) {
+			splitQueue.expire(currentTime);
+		}
+
+		// Send queued acknowledgements
+		this.sendQueuedAcknowledgements(currentTime, force);
+
 		// Send keep alive packet
 		if (currentTime - lastPacketReceiveTime >= DETECTION_SEND_INTERVAL
-				&& currentTime - lastDetectionSendTime >= DETECTION_SEND_INTERVAL && latencyEnabled == false
+				&& currentTime - lastDetectionSendTime >= DETECTION_SEND_INTERVAL
+				&& (latencyEnabled == false || roundTripTimeLatencyEnabled == true)
 				&& state == RakNetState.LOGGED_IN) {
-			this.sendMessage(Reliability.UNRELIABLE, ID_DETECT_LOST_CONNECTIONS);
+			this.sendMessage(Reliability.UNRELIABLE, Priority.IMMEDIATE, new RakNetPacket(ID_DETECT_LOST_CONNECTIONS));
 			this.lastDetectionSendTime = currentTime;
 		}
 
 		// Send ping to detect latency if it is enabled
-		if (latencyEnabled == true && currentTime - lastPingSendTime >= PING_SEND_INTERVAL
-				&& state == RakNetState.LOGGED_IN) {
+		if (latencyEnabled == true && roundTripTimeLatencyEnabled == false
+				&& currentTime - lastPingSendTime >= PING_SEND_INTERVAL && state == RakNetState.LOGGED_IN) {
 			ConnectedPing ping = new ConnectedPing();
 			ping.timestamp = this.getTimestamp();
 			ping.encode();
-			this.sendMessage(Reliability.UNRELIABLE, ping);
+			this.sendMessage(Reliability.UNRELIABLE, Priority.IMMEDIATE, ping);
 			this.lastPingSendTime = currentTime;
 			latencyTimestamps.add(ping.timestamp);
 		}
 
-		// Send next packets in the send queue
-		if (!sendQueue.isEmpty() && packetsSentThisSecond < RakNet.getMaxPacketsPerSecond()) {
+		/*
+		 * Send as many packets from the resend and send queues as possible,
+		 * for as long as a full custom packet would fit within the congestion
+		 * window. If there is nothing in flight or the update is forced, a
+		 * packet is always sent so the window can never stall and
+		 * disconnection notifications are never held back.
+		 */
+		boolean congested = bytesInFlight > 0
+				&& bytesInFlight + maximumTransferUnit > congestionControl.getCongestionWindow();
+
+		/*
+		 * The pacer is refilled at the rate the congestion window would be
+		 * sent at if it were spread evenly over a single round trip. Until
+		 * the round trip time is known, there is nothing to pace by.
+		 */
+		pacer.refill(System.nanoTime(), this.getPacingRate());
+		if (pacingEnabled == true && !pacer.canSend()) {
+			congested = true;
+		}
+		int sent = 0;
+		while (this.hasQueuedMessages(currentTime) && packetsSentThisSecond < RakNet.getMaxPacketsPerSecond()) {
+			if (sent > 0) {
+				congested = (bytesInFlight + maximumTransferUnit > congestionControl.getCongestionWindow())
+						|| (pacingEnabled == true && !pacer.canSend());
+			}
+			if (congested == true && (force == false || sent > 0)) {
+				break; // Wait for the congestion window or pacer
+			}
+
+			/*
+			 * Messages being resent always go first, followed by any
+			 * immediate messages that have not been sent yet. After that,
+			 * the priority picked by the scheduler goes first, and the
+			 * rest of the space is filled by the other priorities from
+			 * highest to lowest.
+			 */
 			ArrayList<EncapsulatedPacket> send = new ArrayList<EncapsulatedPacket>();
-			int sendLength = CustomPacket.MINIMUM_SIZE;
-			Iterator<EncapsulatedPacket> sendQueueI = sendQueue.iterator();
-			while (sendQueueI.hasNext()) {
-				EncapsulatedPacket encapsulated = sendQueueI.next();
-				sendLength += encapsulated.size();
-				if (sendLength > maximumTransferUnit) {
-					break; // Adding this packet would cause an overflow
+			int sendLength = this.pack(resendQueue, send, CustomPacket.MINIMUM_SIZE, currentTime, true);
+			boolean retransmission = !send.isEmpty();
+			Priority lead = this.nextPriority();
+			sendLength = this.pack(sendQueue.get(Priority.IMMEDIATE.ordinal()), send, sendLength, currentTime, false);
+			if (lead != null) {
+				sendLength = this.pack(sendQueue.get(lead.ordinal()), send, sendLength, currentTime, true);
+			}
+			for (Priority priority : Priority.values()) {
+				if (priority != Priority.IMMEDIATE && priority != lead) {
+					sendLength = this.pack(sendQueue.get(priority.ordinal()), send, sendLength, currentTime, true);
 				}
-				send.add(encapsulated);
-				sendQueueI.remove();
 			}
-			if (!send.isEmpty()) {
-				this.sendCustomPacket(true, send.toArray(new EncapsulatedPacket[send.size()]));
+			sendLength = this.packStreams(send, sendLength, currentTime);
+			if (send.isEmpty()) {
+				break; // All messages are waiting to be coalesced
 			}
+			this.sendCustomPacket(retransmission, send.toArray(new EncapsulatedPacket[send.size()]));
+			sent++;
 		}
 
-		// Resend lost packets
-		Iterator<EncapsulatedPacket[]> recoveryQueueI = recoveryQueue.values().iterator();
-		if (currentTime - lastRecoverySendTime >= RECOVERY_SEND_INTERVAL && recoveryQueueI.hasNext()) {
-			this.sendCustomPacket(false, recoveryQueueI.next());
-			this.lastRecoverySendTime = currentTime;
-		} else {
-			/*
-			 * Nothing needs to be recovered if there is nothing in the queue.
-			 * Only start counting the time that has been passed since the last
-			 * recovery packet has been sent when there are reliable packets in
-			 * the queue that have yet to be acknowledged.
-			 */
-			this.lastRecoverySendTime = currentTime;
+		/*
+		 * Resend every packet whose retransmission timeout has expired, by
+		 * moving its reliable messages to the resend queue to be sent on the
+		 * next update. Packets that have been acknowledged or resent due to a
+		 * NACK are not removed from the retransmission queue right away, they
+		 * are simply skipped here once they are no longer in the recovery
+		 * queue.
+		 */
+		boolean expired = false;
+		RecoveryPacket recovery = null;
+		while ((recovery = retransmitQueue.peek()) != null && recovery.retransmitTime <= currentTime) {
+			retransmitQueue.poll();
+			if (recoveryQueue.remove(recovery.sequenceId, recovery)) {
+				this.bytesInFlight -= recovery.size;
+				resendQueue.addAll(Arrays.asList(recovery.messages));
+				expired = true;
+			}
+		}
+		if (expired == true) {
+			this.retransmissionTimeout = Math.min(retransmissionTimeout * 2, MAXIMUM_RETRANSMISSION_TIMEOUT);
+			congestionControl.onRetransmissionTimeout(currentTime);
+		}
+
+		/*
+		 * If most of the retransmission queue consists of packets which have
+		 * already been acknowledged, it is cleared of them to keep it from
+		 * growing while they wait for their retransmission time.
+		 */
+		if (retransmitQueue.size() > recoveryQueue.size() * 2 + RETRANSMIT_QUEUE_SLACK) {
+			retransmitQueue.removeIf(packet -> recoveryQueue.get(packet.sequenceId) != packet);
 		}
 	}
 
 	/**
 	 * Updates the peer.
+	 * <p>
+	 * Peers are updated by the event loop of their channel whenever they have
+	 * something to do, so there is no need to call this method manually. It
+	 * can only be called by the event loop of the peer.
 	 * 
 	 * @throws IllegalStateException
-	 *             if the peer is disconnected.
+	 *             if the peer is disconnected, or if this is not called by the
+	 *             event loop of the peer.
 	 * @throws TimeoutException
 	 *             if the peer has timed out.
+	 * @throws SplitQueueOverflowException
+	 *             if a reliable split packet has gone without receiving a
+	 *             chunk for longer than the split timeout.
 	 */
-	public final void update() throws IllegalStateException, TimeoutException {
+	public final void update() throws IllegalStateException, TimeoutException, SplitQueueOverflowException {
+		if (!eventLoop.inEventLoop()) {
+			throw new IllegalStateException("Peer can only be updated by its event loop");
+		}
 		this.update(false);
 	}
 
+	/**
+	 * Updates the peer on behalf of its event loop.
+	 * <p>
+	 * Any exception thrown while updating the peer is passed to the
+	 * {@link #onUpdateException(Throwable)} method, as there is no one else to
+	 * throw it to.
+	 */
+	private final void tick() {
+		this.updateFuture = null;
+		if (this.isDisconnected()) {
+			return;
+		}
+		try {
+			this.update(false);
+		} catch (Throwable cause) {
+			this.onUpdateException(cause);
+		}
+		this.schedule(this.getNextUpdateTime(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Schedules the peer to be updated by its event loop at the specified
+	 * time.
+	 * <p>
+	 * If an update is already scheduled at or before the specified time,
+	 * nothing happens. Otherwise, the scheduled update is moved to the
+	 * specified time. A disconnected peer is never scheduled to be updated.
+	 * 
+	 * @param time
+	 *            the time to update the peer at.
+	 */
+	private final void schedule(long time) {
+		if (this.isDisconnected() || (updateFuture != null && updateTime <= time)) {
+			return; // Disconnected or already scheduled in time
+		} else if (updateFuture != null) {
+			updateFuture.cancel(false);
+		}
+		this.updateTime = time;
+		this.updateFuture = eventLoop.schedule(this::tick, Math.max(time - System.currentTimeMillis(), 0L),
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Schedules the peer to be updated by its event loop as soon as possible.
+	 * <p>
+	 * The update is run once the event loop has finished what it is currently
+	 * doing, so every packet that is received or message that is queued in the
+	 * meantime is taken care of by the same update.
+	 */
+	private final void wake() {
+		this.schedule(System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the interval at which the custom packets that are still missing
+	 * are reported to the other side with a <code>NACK</code> packet.
+	 * 
+	 * @return the interval at which the custom packets that are still missing
+	 *         are reported in milliseconds.
+	 */
+	private final long getNotAcknowledgeInterval() {
+		if (smoothedRoundTripTime < 0) {
+			return RECOVERY_SEND_INTERVAL;
+		}
+		return Math.max(Math.round(smoothedRoundTripTime), MINIMUM_RETRANSMISSION_TIMEOUT);
+	}
+
+	/**
+	 * Returns the rate at which the pacer is refilled.
+	 * <p>
+	 * This is the rate the congestion window would be sent at if it were
+	 * spread evenly over a single round trip. Until the round trip time is
+	 * known, there is nothing to pace by.
+	 * 
+	 * @return the pacing rate in bytes per millisecond, <code>0</code> if the
+	 *         round trip time is not yet known.
+	 */
+	private final double getPacingRate() {
+		if (smoothedRoundTripTime < 0) {
+			return 0.0D;
+		}
+		return congestionControl.getCongestionWindow() / Math.max(smoothedRoundTripTime, 1.0D)
+				* (congestionControl.isInSlowStart() ? SLOW_START_PACING_GAIN : PACING_GAIN);
+	}
+
+	/**
+	 * Returns the next time the peer has something to do, and thus the next
+	 * time it needs to be updated.
+	 * <p>
+	 * Messages that are waiting for the congestion window to open are not
+	 * accounted for here, as the window can only open up once a packet has
+	 * been received or once a packet needs to be resent, both of which
+	 * already wake up the peer. Messages that are held back by the pacer are
+	 * accounted for at the time the pacer will let them through, and messages
+	 * that are waiting to be coalesced at the time their coalescing delay runs
+	 * out. Streams whose source had no data available are only accounted for
+	 * once their read delay has passed.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @return the next time the peer needs to be updated.
+	 */
+	private final long getNextUpdateTime(long currentTime) {
+		long next = timeout < Long.MAX_VALUE - lastPacketReceiveTime ? lastPacketReceiveTime + timeout
+				: Long.MAX_VALUE;
+		if (state == RakNetState.LOGGED_IN) {
+			if (latencyEnabled == false || roundTripTimeLatencyEnabled == true) {
+				next = Math.min(next,
+						Math.max(lastPacketReceiveTime, lastDetectionSendTime) + DETECTION_SEND_INTERVAL);
+			}
+			if (latencyEnabled == true && roundTripTimeLatencyEnabled == false) {
+				next = Math.min(next, lastPingSendTime + PING_SEND_INTERVAL);
+			}
+		}
+		if (receiveWindow.hasHoles()) {
+			next = Math.min(next, receiveWindow.lastNotAcknowledgeTime + this.getNotAcknowledgeInterval());
+		}
+		if (acknowledgeQueueSize > 0 || !notAcknowledgeQueue.isEmpty()) {
+			next = Math.min(next, acknowledgeQueueTime + acknowledgeDelay);
+		}
+		next = Math.min(next, splitQueue.getNextExpirationTime());
+		RecoveryPacket recovery = retransmitQueue.peek();
+		if (recovery != null) {
+			next = Math.min(next, recovery.retransmitTime);
+		}
+		for (OutgoingStream stream : outgoingStreams) {
+			if (stream.failure == null && stream.readTime > currentTime) {
+				next = Math.min(next, stream.readTime);
+			}
+		}
+		if (this.hasQueuedMessages(currentTime)) {
+			if (packetsSentThisSecond >= RakNet.getMaxPacketsPerSecond()) {
+				next = Math.min(next, lastPacketsSentThisSecondResetTime + 1000L);
+			} else if (bytesInFlight <= 0
+					|| bytesInFlight + maximumTransferUnit <= congestionControl.getCongestionWindow()) {
+				long delay = pacingEnabled == true ? pacer.getDelay(this.getPacingRate()) : 0L;
+				if (delay > 0) {
+					next = Math.min(next, currentTime + delay);
+				} else {
+					next = Math.min(next,
+							Math.max(this.getCoalescingReleaseTime(currentTime), currentTime + UPDATE_INTERVAL));
+				}
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Returns the time at which the first of the queued messages that are
+	 * waiting to be coalesced with other messages can be sent on its own.
+	 * <p>
+	 * Only the messages that would be looked at when packing a custom packet
+	 * are accounted for. Immediate messages are never coalesced, and neither
+	 * are the chunks of a stream that is ready to be read from, so those can
+	 * be sent right away.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @return the time at which the first of the queued messages can be sent,
+	 *         {@link Long#MAX_VALUE} if there are none.
+	 */
+	private final long getCoalescingReleaseTime(long currentTime) {
+		long release = Long.MAX_VALUE;
+		for (OutgoingStream stream : outgoingStreams) {
+			if (stream.failure != null || stream.readTime <= currentTime) {
+				return currentTime;
+			}
+		}
+		EncapsulatedPacket resend = resendQueue.peek();
+		if (resend != null) {
+			release = resend.queueTime + coalescingDelay[resend.orderChannel];
+		}
+		if (!sendQueue.get(Priority.IMMEDIATE.ordinal()).isEmpty()) {
+			return currentTime; // Immediate messages are never coalesced
+		}
+		for (Priority priority : Priority.values()) {
+			int looked = 0;
+			for (EncapsulatedPacket encapsulated : sendQueue.get(priority.ordinal())) {
+				release = Math.min(release, encapsulated.queueTime + coalescingDelay[encapsulated.orderChannel]);
+				if (++looked >= PACKING_LOOKAHEAD) {
+					break;
+				}
+			}
+		}
+		return release;
+	}
+
+	/**
+	 * Releases the buffers held by a message that will never be sent again.
+	 * <p>
+	 * This is the cached encoding of the message if it is reliable, and the
+	 * slice of the original payload if it is a split packet. Releasing the
+	 * slice returns the reference it retained on the original payload, which
+	 * is still owned by the sender of the message.
+	 * 
+	 * @param encapsulated
+	 *            the message being discarded.
+	 */
+	private final void discard(EncapsulatedPacket encapsulated) {
+		encapsulated.releaseEncoding();
+		if (encapsulated.split == true) {
+			encapsulated.payload.release();
+		}
+	}
+
 	/**
 	 * Disconnects the peer.
 	 * <p>
 	 * Proper disconnection is accomplished here by sending it an unreliable
-	 * <code>DISCONNECTION_NOTIFICATION</code> packet.
+	 * <code>DISCONNECTION_NOTIFICATION</code> packet. The peer is marked as
+	 * disconnected before this method returns, while the notification is sent
+	 * by the event loop of the peer.
 	 * 
 	 * @throws IllegalStateException
 	 *             if the peer is already disconnected.
@@ -1143,14 +3612,53 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 		this.setState(RakNetState.DISCONNECTED);
 
 		/*
-		 * Clear the send queue to make sure the disconnect packet is first in
-		 * line to be sent. After the disconnection notification packet has been
-		 * sent, the peer will be forcefully updated to ensure the packet is
-		 * sent out at least once.
+		 * Clear the send queues to make sure nothing else is sent after the
+		 * disconnect packet, which is sent immediately. Every message that was
+		 * waiting to be sent, resent, or acknowledged is discarded, as it will
+		 * never be sent again. Afterwards, the peer will be forcefully updated
+		 * to ensure any queued acknowledgements are sent out as well.
 		 */
-		sendQueue.clear();
-		this.sendMessage(Reliability.UNRELIABLE, ID_DISCONNECTION_NOTIFICATION);
-		this.update(true);
+		this.execute(() -> {
+			for (ArrayDeque<EncapsulatedPacket> queue : sendQueue) {
+				for (EncapsulatedPacket encapsulated : queue) {
+					this.discard(encapsulated);
+				}
+				queue.clear();
+			}
+			for (HashMap<Object, EncapsulatedPacket> queued : replaceable) {
+				queued.clear();
+			}
+			LinkedHashSet<OutgoingStream> streams = new LinkedHashSet<OutgoingStream>(outgoingStreams);
+			streams.addAll(streamChunks.values());
+			for (OutgoingStream stream : streams) {
+				stream.close();
+				if (stream.listener != null && stream.failure == null) {
+					stream.failure = new IOException("Peer disconnected");
+					stream.listener.onFailure(this, stream.streamId, stream.failure);
+				}
+			}
+			outgoingStreams.clear();
+			streamChunks.clear();
+			splitQueue.clear();
+			EncapsulatedPacket resend = null;
+			while ((resend = resendQueue.poll()) != null) {
+				this.discard(resend);
+			}
+			for (RecoveryPacket recovery : recoveryQueue.values()) {
+				for (EncapsulatedPacket encapsulated : recovery.messages) {
+					this.discard(encapsulated);
+				}
+			}
+			recoveryQueue.clear();
+			retransmitQueue.clear();
+			this.sendMessage(Reliability.UNRELIABLE, Priority.IMMEDIATE,
+					new RakNetPacket(ID_DISCONNECTION_NOTIFICATION));
+			this.update(true);
+			if (updateFuture != null) {
+				updateFuture.cancel(false);
+				this.updateFuture = null;
+			}
+		});
 	}
 
 	/**
@@ -1163,6 +3671,48 @@ public abstract class RakNetPeer implements RakNetPeerMessenger {
 	 */
 	public abstract void handleMessage(RakNetPacket packet, int channel);
 
+	/**
+	 * Called when a chunk of a stream is received.
+	 * <p>
+	 * The chunks of a stream are always received in the order they were sent.
+	 * 
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param channel
+	 *            the channel the stream is being sent on.
+	 * @param data
+	 *            the data of the chunk.
+	 * @see #sendStream(int, ReadableByteChannel, StreamListener)
+	 */
+	public abstract void handleStreamData(int streamId, int channel, Packet data);
+
+	/**
+	 * Called when a stream has ended.
+	 * 
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param channel
+	 *            the channel the stream was sent on.
+	 * @param completed
+	 *            <code>true</code> if the stream was received in full,
+	 *            <code>false</code> if it was aborted by the sender.
+	 * @see #sendStream(int, ReadableByteChannel, StreamListener)
+	 */
+	public abstract void onStreamEnd(int streamId, int channel, boolean completed);
+
+	/**
+	 * Called when an exception is thrown while the event loop of the peer is
+	 * updating it or running a task handed off to it, such as when the peer
+	 * has timed out.
+	 * <p>
+	 * Since there is no one else to throw the exception to, it is up to the
+	 * peer to report it and disconnect.
+	 * 
+	 * @param cause
+	 *            the exception that was thrown.
+	 */
+	protected abstract void onUpdateException(Throwable cause);
+
 	/**
 	 * Called when a acknowledge receipt is received for an
 	 * {@link EncapsulatedPacket}.
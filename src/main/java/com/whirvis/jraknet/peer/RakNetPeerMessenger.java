@@ -33,6 +33,7 @@ import com.whirvis.jraknet.InvalidChannelException;
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNet;
 import com.whirvis.jraknet.RakNetPacket;
+import com.whirvis.jraknet.protocol.Priority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
 
@@ -57,7 +58,99 @@ import io.netty.buffer.ByteBuf;
 public interface RakNetPeerMessenger {
 
 	/**
-	 * Sends a message to the peer.
+	 * Sends a message to the peer with the specified priority.
+	 * 
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code>, <code>priority</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public EncapsulatedPacket sendMessage(Reliability reliability, Priority priority, int channel, Packet packet)
+			throws NullPointerException, InvalidChannelException;
+
+	/**
+	 * Sends a message to the peer with the specified priority that is
+	 * discarded if it has not been sent within the specified amount of time.
+	 * <p>
+	 * This is meant for data that is worthless once it is old, such as voice
+	 * or position updates. When the connection is saturated, messages that
+	 * have waited in the send queue for longer than their time to live are
+	 * dropped rather than sent, leaving the bandwidth for newer data.
+	 * <p>
+	 * Only the {@link Reliability#UNRELIABLE UNRELIABLE} and
+	 * {@link Reliability#UNRELIABLE_SEQUENCED UNRELIABLE_SEQUENCED}
+	 * reliabilities can be used, as any other reliability expects every
+	 * message that is sent to arrive.
+	 * 
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @param timeToLive
+	 *            how long the packet can wait to be sent in milliseconds.
+	 * @return the generated encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code>, <code>priority</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>reliability</code> is not
+	 *             {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 *             {@link Reliability#UNRELIABLE_SEQUENCED
+	 *             UNRELIABLE_SEQUENCED}, or if the <code>timeToLive</code> is
+	 *             less than or equal to <code>0</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public EncapsulatedPacket sendMessage(Reliability reliability, Priority priority, int channel, Packet packet,
+			long timeToLive) throws NullPointerException, IllegalArgumentException, InvalidChannelException;
+
+	/**
+	 * Sends a message to the peer with the specified priority on the default
+	 * channel.
+	 * 
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet. This is normally not
+	 *         important, however it can be used for packet acknowledged and not
+	 *         acknowledged events if the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code>, <code>priority</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 */
+	public default EncapsulatedPacket sendMessage(Reliability reliability, Priority priority, Packet packet)
+			throws NullPointerException {
+		return this.sendMessage(reliability, priority, RakNet.DEFAULT_CHANNEL, packet);
+	}
+
+	/**
+	 * Sends a message to the peer with the {@link Priority#MEDIUM MEDIUM}
+	 * priority.
 	 * 
 	 * @param reliability
 	 *            the reliability of the packet.
@@ -77,8 +170,10 @@ public interface RakNetPeerMessenger {
 	 *             if the channel is higher than or equal to
 	 *             {@value RakNet#CHANNEL_COUNT}.
 	 */
-	public EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
-			throws NullPointerException, InvalidChannelException;
+	public default EncapsulatedPacket sendMessage(Reliability reliability, int channel, Packet packet)
+			throws NullPointerException, InvalidChannelException {
+		return this.sendMessage(reliability, Priority.MEDIUM, channel, packet);
+	}
 
 	/**
 	 * Sends messages to the peer.
@@ -351,4 +446,82 @@ public interface RakNetPeerMessenger {
 		return this.sendMessage(reliability, RakNet.DEFAULT_CHANNEL, packetIds);
 	}
 
+	/**
+	 * Sends a replaceable message to the peer with the specified priority.
+	 * <p>
+	 * Replaceable messages are meant for streams of state updates, where only
+	 * the newest update matters. If a message with the same key and priority
+	 * is still waiting in the send queue when this is called, it is replaced
+	 * by the new message rather than having the new message queued after it.
+	 * This keeps the send queue from growing past the amount of keys in use,
+	 * no matter how often updates are sent.
+	 * <p>
+	 * Only the {@link Reliability#UNRELIABLE UNRELIABLE} and
+	 * {@link Reliability#UNRELIABLE_SEQUENCED UNRELIABLE_SEQUENCED}
+	 * reliabilities can be used, as any other reliability expects every
+	 * message that is sent to arrive. Replaceable messages also cannot be
+	 * split, so the packet must fit within a single datagram.
+	 * 
+	 * @param key
+	 *            the key of the message, such as the ID of the entity whose
+	 *            state is being sent.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>key</code>, <code>reliability</code>,
+	 *             <code>priority</code>, or <code>packet</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>reliability</code> is not
+	 *             {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 *             {@link Reliability#UNRELIABLE_SEQUENCED
+	 *             UNRELIABLE_SEQUENCED}, or if the <code>packet</code> is too
+	 *             big to be sent without being split.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public EncapsulatedPacket sendReplaceableMessage(Object key, Reliability reliability, Priority priority,
+			int channel, Packet packet) throws NullPointerException, IllegalArgumentException, InvalidChannelException;
+
+	/**
+	 * Sends a replaceable message to the peer with the {@link Priority#MEDIUM
+	 * MEDIUM} priority.
+	 * 
+	 * @param key
+	 *            the key of the message, such as the ID of the entity whose
+	 *            state is being sent.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>key</code>, <code>reliability</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>reliability</code> is not
+	 *             {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 *             {@link Reliability#UNRELIABLE_SEQUENCED
+	 *             UNRELIABLE_SEQUENCED}, or if the <code>packet</code> is too
+	 *             big to be sent without being split.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @see #sendReplaceableMessage(Object, Reliability, Priority, int, Packet)
+	 */
+	public default EncapsulatedPacket sendReplaceableMessage(Object key, Reliability reliability, int channel,
+			Packet packet) throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendReplaceableMessage(key, reliability, Priority.MEDIUM, channel, packet);
+	}
+
 }
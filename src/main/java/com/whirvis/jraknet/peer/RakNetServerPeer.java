@@ -33,6 +33,7 @@ import static com.whirvis.jraknet.RakNetPacket.*;
 
 import java.net.InetSocketAddress;
 
+import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.client.RakNetClient;
 import com.whirvis.jraknet.protocol.ConnectionType;
@@ -125,6 +126,16 @@ public final class RakNetServerPeer extends RakNetPeer implements RakNetPeerMess
 		}
 	}
 
+	@Override
+	public void handleStreamData(int streamId, int channel, Packet data) {
+		client.callEvent(listener -> listener.handleStreamData(client, this, streamId, channel, data));
+	}
+
+	@Override
+	public void onStreamEnd(int streamId, int channel, boolean completed) {
+		client.callEvent(listener -> listener.onStreamEnd(client, this, streamId, channel, completed));
+	}
+
 	@Override
 	public void onAcknowledge(Record record, EncapsulatedPacket packet) {
 		if (record.equals(loginRecord.ackRecord)) {
@@ -142,4 +153,12 @@ public final class RakNetServerPeer extends RakNetPeer implements RakNetPeerMess
 		client.callEvent(listener -> listener.onLoss(client, this, record, packet));
 	}
 
+	@Override
+	protected void onUpdateException(Throwable cause) {
+		client.callEvent(listener -> listener.onPeerException(client, this, cause));
+		if (!this.isDisconnected()) {
+			client.disconnect(cause);
+		}
+	}
+
 }
@@ -0,0 +1,55 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * Signals that a reliable message was received with a message index too far
+ * ahead of the lowest message index that has not yet been received.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class ReliableWindowOverflowException extends RuntimeException {
+
+	private static final long serialVersionUID = -4512946315330419754L;
+
+	/**
+	 * Constructs a <code>ReliableWindowOverflowException</code>.
+	 * 
+	 * @param distance
+	 *            the distance of the message index from the lowest message
+	 *            index that has not yet been received.
+	 */
+	public ReliableWindowOverflowException(int distance) {
+		super("Reliable message index is " + distance + " ahead of the receive window (Maximum is "
+				+ RakNetPeer.MAX_RELIABLE_WINDOW_SIZE + ")");
+	}
+
+}
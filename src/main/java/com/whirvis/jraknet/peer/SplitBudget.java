@@ -0,0 +1,170 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A limit on the amount of memory in bytes that can be used by split packets
+ * waiting to be reassembled, shared by every {@link RakNetPeer} it is given to.
+ * <p>
+ * Every peer also has a limit of its own, which can be changed with the
+ * {@link RakNetPeer#setSplitMemoryLimit(long)} method. A budget shared between
+ * peers keeps the total amount of memory used by all of them in check, even
+ * when every peer on its own is within its limit. A
+ * {@link com.whirvis.jraknet.server.RakNetServer RakNetServer} gives the same
+ * budget to every client that connects to it.
+ * <p>
+ * A peer is never disconnected because the budget has been used up. Its
+ * unreliable chunks are dropped, and its reliable chunks are left
+ * unacknowledged so that they are resent once memory has been freed. Only
+ * going over the limit of the peer itself causes it to be disconnected.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SplitBudget {
+
+	private volatile long limit;
+	private final AtomicLong used;
+	private final AtomicLong evictionCount;
+
+	/**
+	 * Creates a split budget.
+	 * 
+	 * @param limit
+	 *            the amount of memory in bytes that can be used by split
+	 *            packets waiting to be reassembled.
+	 * @throws IllegalArgumentException
+	 *             if the <code>limit</code> is negative.
+	 */
+	public SplitBudget(long limit) throws IllegalArgumentException {
+		this.setLimit(limit);
+		this.used = new AtomicLong();
+		this.evictionCount = new AtomicLong();
+	}
+
+	/**
+	 * Returns the amount of memory in bytes that can be used by split packets
+	 * waiting to be reassembled.
+	 * 
+	 * @return the amount of memory in bytes that can be used by split packets
+	 *         waiting to be reassembled.
+	 */
+	public long getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * Sets the amount of memory in bytes that can be used by split packets
+	 * waiting to be reassembled.
+	 * <p>
+	 * Lowering the limit below the amount of memory already in use does not
+	 * evict any split packets, it only causes new chunks to be refused until
+	 * enough memory has been freed.
+	 * 
+	 * @param limit
+	 *            the amount of memory in bytes that can be used by split
+	 *            packets waiting to be reassembled.
+	 * @throws IllegalArgumentException
+	 *             if the <code>limit</code> is negative.
+	 */
+	public void setLimit(long limit) throws IllegalArgumentException {
+		if (limit < 0) {
+			throw new IllegalArgumentException("Limit cannot be negative");
+		}
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the amount of memory in bytes currently used by split packets
+	 * waiting to be reassembled.
+	 * 
+	 * @return the amount of memory in bytes currently used by split packets
+	 *         waiting to be reassembled.
+	 */
+	public long getUsed() {
+		return used.get();
+	}
+
+	/**
+	 * Returns the amount of split packets that have been evicted by the peers
+	 * sharing this budget, for any reason.
+	 * 
+	 * @return the amount of split packets that have been evicted by the peers
+	 *         sharing this budget.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Reserves the specified amount of memory, if doing so would not go over
+	 * the limit.
+	 * 
+	 * @param bytes
+	 *            the amount of memory in bytes to reserve.
+	 * @return <code>true</code> if the memory was reserved, <code>false</code>
+	 *         otherwise.
+	 */
+	boolean reserve(long bytes) {
+		while (true) {
+			long current = used.get();
+			if (current + bytes > limit) {
+				return false;
+			} else if (used.compareAndSet(current, current + bytes)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Frees the specified amount of previously reserved memory.
+	 * 
+	 * @param bytes
+	 *            the amount of memory in bytes to free.
+	 */
+	void free(long bytes) {
+		used.addAndGet(-bytes);
+	}
+
+	/**
+	 * Counts a split packet as evicted.
+	 */
+	void evicted() {
+		evictionCount.incrementAndGet();
+	}
+
+	@Override
+	public String toString() {
+		return "SplitBudget [limit=" + limit + ", used=" + used + ", evictionCount=" + evictionCount + "]";
+	}
+
+}
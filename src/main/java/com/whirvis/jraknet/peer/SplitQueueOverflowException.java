@@ -46,4 +46,15 @@ public final class SplitQueueOverflowException extends RuntimeException {
 		super("Too many split packets in a single queue");
 	}
 
+	/**
+	 * Constructs a <code>SplitQueueOverloadException</code> with the specified
+	 * reason.
+	 * 
+	 * @param reason
+	 *            the reason the split queue overflowed.
+	 */
+	public SplitQueueOverflowException(String reason) {
+		super(reason);
+	}
+
 }
@@ -0,0 +1,451 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+
+/**
+ * Reassembles the split packets received by a {@link RakNetPeer}, while
+ * keeping the memory used by the chunks waiting to be reassembled in check.
+ * <p>
+ * Three limits are enforced: the amount of split packets that can be
+ * reassembled at once, the amount of memory in bytes that can be used by the
+ * chunks of the peer, and the amount of memory in bytes that can be used by the
+ * chunks of every peer sharing the same {@link SplitBudget}. Split packets that
+ * have not received a chunk within the split timeout are evicted.
+ * <p>
+ * When a limit is reached, the unreliable split packets are evicted first,
+ * starting with the one that has gone the longest without receiving a chunk.
+ * Reliable split packets are never evicted to make room, as the chunks they
+ * have already received have been acknowledged and will never be sent again.
+ * If there is still no room after every unreliable split packet has been
+ * evicted, an unreliable chunk is dropped. A reliable chunk causes a
+ * {@link SplitQueueOverflowException} to be thrown if the peer has gone over a
+ * limit of its own. If it is only the shared budget that has been used up by
+ * other peers, the reliable chunk is {@link #DEFERRED deferred} instead, so
+ * that a peer which is within its own limits is never disconnected because of
+ * other peers.
+ * <p>
+ * Like the rest of the state of a peer, this is only ever modified by the
+ * event loop of the peer, and as such is not synchronized.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+final class SplitReassembler {
+
+	/**
+	 * A split packet waiting to be reassembled.
+	 * 
+	 * @author "Whirvis" Trent Summerlin
+	 * @since JRakNet v2.12.4
+	 */
+	private static final class Entry {
+
+		private final EncapsulatedPacket.Split split;
+		private long size;
+		private long lastUpdateTime;
+
+		/**
+		 * Creates a split packet waiting to be reassembled.
+		 * 
+		 * @param split
+		 *            the split packet.
+		 * @param currentTime
+		 *            the time the first chunk was received.
+		 */
+		private Entry(EncapsulatedPacket.Split split, long currentTime) {
+			this.split = split;
+			this.lastUpdateTime = currentTime;
+		}
+
+		/**
+		 * Returns whether or not the split packet is reliable.
+		 * 
+		 * @return <code>true</code> if the split packet is reliable,
+		 *         <code>false</code> otherwise.
+		 */
+		private boolean isReliable() {
+			return split.getReliability().isReliable();
+		}
+
+	}
+
+	/**
+	 * Returned by {@link #update(EncapsulatedPacket, long)} when a reliable
+	 * chunk could not be stored because the shared budget has been used up,
+	 * even though the peer is within its own limits. The chunk has not been
+	 * stored, and must not be acknowledged so that it is resent later.
+	 */
+	static final EncapsulatedPacket DEFERRED = new EncapsulatedPacket();
+
+	private final Logger logger;
+	private final SplitBudget budget;
+	private final HashMap<Integer, Entry> splits;
+	private int maxConcurrentSplits;
+	private long memoryLimit;
+	private long timeout;
+	private long used;
+	private long evictionCount;
+
+	/**
+	 * Creates a split packet reassembler.
+	 * 
+	 * @param logger
+	 *            the logger of the peer.
+	 * @param budget
+	 *            the budget shared with other peers, <code>null</code> if the
+	 *            memory used is only limited for this peer.
+	 * @param memoryLimit
+	 *            the amount of memory in bytes that can be used by the chunks
+	 *            waiting to be reassembled.
+	 */
+	SplitReassembler(Logger logger, SplitBudget budget, long memoryLimit) {
+		this.logger = logger;
+		this.budget = budget;
+		this.splits = new HashMap<Integer, Entry>();
+		this.maxConcurrentSplits = RakNetPeer.MAX_SPLITS_PER_QUEUE;
+		this.memoryLimit = memoryLimit;
+		this.timeout = RakNetPeer.SPLIT_TIMEOUT;
+	}
+
+	/**
+	 * Returns the amount of split packets that can be reassembled at once.
+	 * 
+	 * @return the amount of split packets that can be reassembled at once.
+	 */
+	int getMaxConcurrentSplits() {
+		return this.maxConcurrentSplits;
+	}
+
+	/**
+	 * Sets the amount of split packets that can be reassembled at once.
+	 * 
+	 * @param maxConcurrentSplits
+	 *            the amount of split packets that can be reassembled at once.
+	 */
+	void setMaxConcurrentSplits(int maxConcurrentSplits) {
+		this.maxConcurrentSplits = maxConcurrentSplits;
+	}
+
+	/**
+	 * Returns the amount of memory in bytes that can be used by the chunks
+	 * waiting to be reassembled.
+	 * 
+	 * @return the amount of memory in bytes that can be used by the chunks
+	 *         waiting to be reassembled.
+	 */
+	long getMemoryLimit() {
+		return this.memoryLimit;
+	}
+
+	/**
+	 * Sets the amount of memory in bytes that can be used by the chunks
+	 * waiting to be reassembled.
+	 * 
+	 * @param memoryLimit
+	 *            the amount of memory in bytes that can be used by the chunks
+	 *            waiting to be reassembled.
+	 */
+	void setMemoryLimit(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+	}
+
+	/**
+	 * Returns the amount of time in milliseconds a split packet can go without
+	 * receiving a chunk before it is evicted.
+	 * 
+	 * @return the amount of time in milliseconds a split packet can go without
+	 *         receiving a chunk before it is evicted.
+	 */
+	long getTimeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * Sets the amount of time in milliseconds a split packet can go without
+	 * receiving a chunk before it is evicted.
+	 * 
+	 * @param timeout
+	 *            the amount of time in milliseconds a split packet can go
+	 *            without receiving a chunk before it is evicted.
+	 */
+	void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Returns the amount of memory in bytes used by the chunks waiting to be
+	 * reassembled.
+	 * 
+	 * @return the amount of memory in bytes used by the chunks waiting to be
+	 *         reassembled.
+	 */
+	long getUsed() {
+		return this.used;
+	}
+
+	/**
+	 * Returns the amount of split packets that have been evicted.
+	 * 
+	 * @return the amount of split packets that have been evicted.
+	 */
+	long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Adds a chunk to the split packet it belongs to.
+	 * 
+	 * @param encapsulated
+	 *            the chunk.
+	 * @param currentTime
+	 *            the current time.
+	 * @return the reassembled packet if this was the last chunk missing,
+	 *         {@link #DEFERRED} if the chunk is reliable and only the shared
+	 *         budget has no room left for it, <code>null</code> if data is
+	 *         still missing or the chunk was dropped.
+	 * @throws SplitQueueOverflowException
+	 *             if the chunk is reliable and there is no room for it within
+	 *             the limits of the peer, even after every unreliable split
+	 *             packet has been evicted.
+	 * @throws IllegalArgumentException
+	 *             if the chunk does not belong to the split packet with the
+	 *             same split ID.
+	 * @see EncapsulatedPacket.Split#update(EncapsulatedPacket)
+	 */
+	EncapsulatedPacket update(EncapsulatedPacket encapsulated, long currentTime)
+			throws SplitQueueOverflowException, IllegalArgumentException {
+		boolean reliable = encapsulated.reliability.isReliable();
+		Entry entry = splits.get(encapsulated.splitId);
+		if (entry == null) {
+			if (splits.size() >= maxConcurrentSplits) {
+				int evicted = 0;
+				Iterator<Entry> splitsI = splits.values().iterator();
+				while (splitsI.hasNext()) {
+					Entry unreliable = splitsI.next();
+					if (!unreliable.isReliable()) {
+						splitsI.remove();
+						this.free(unreliable);
+						evicted++;
+					}
+				}
+				if (evicted > 0) {
+					logger.warn("Evicted " + evicted
+							+ " unreliable packets from the split queue due to an overflowing split queue");
+				}
+				if (splits.size() >= maxConcurrentSplits) {
+					if (reliable == true) {
+						throw new SplitQueueOverflowException();
+					}
+					logger.debug("Dropped unreliable split packet with split ID " + encapsulated.splitId
+							+ " due to an overflowing split queue");
+					return null;
+				}
+			}
+			entry = new Entry(new EncapsulatedPacket.Split(encapsulated.splitId, encapsulated.splitCount,
+					encapsulated.reliability), currentTime);
+			splits.put(encapsulated.splitId, entry);
+		}
+
+		/*
+		 * Make room for the chunk by evicting the unreliable split packets
+		 * that have gone the longest without receiving a chunk, which may
+		 * include the split packet this chunk belongs to.
+		 */
+		long size = encapsulated.payload.size();
+		while (!this.reserve(size)) {
+			Entry oldest = null;
+			for (Entry unreliable : splits.values()) {
+				if (!unreliable.isReliable() && (oldest == null || unreliable.lastUpdateTime < oldest.lastUpdateTime)) {
+					oldest = unreliable;
+				}
+			}
+			if (oldest == null || oldest == entry) {
+				if (reliable == true && used + size <= memoryLimit) {
+					/*
+					 * Only the shared budget is out of room, which this peer
+					 * is not to blame for. The chunk is left unacknowledged
+					 * so that it is resent once memory has been freed. The
+					 * split packet is kept from timing out in the meantime,
+					 * unless it has yet to store any chunks.
+					 */
+					if (entry.size <= 0) {
+						splits.remove(encapsulated.splitId);
+					}
+					entry.lastUpdateTime = currentTime;
+					logger.debug("Deferred reliable chunk of split packet with split ID " + encapsulated.splitId
+							+ " as the shared split packet budget has been used up");
+					return DEFERRED;
+				} else if (reliable == true) {
+					throw new SplitQueueOverflowException("Split packet memory limit reached");
+				}
+				splits.remove(encapsulated.splitId);
+				this.free(entry);
+				logger.debug("Dropped unreliable split packet with split ID " + encapsulated.splitId
+						+ " due to the split packet memory limit");
+				return null;
+			}
+			splits.remove(oldest.split.getSplitId());
+			this.free(oldest);
+			logger.debug("Evicted unreliable split packet with split ID " + oldest.split.getSplitId()
+					+ " due to the split packet memory limit");
+		}
+		entry.size += size;
+		entry.lastUpdateTime = currentTime;
+
+		// Update split packet
+		EncapsulatedPacket stitched = null;
+		try {
+			stitched = entry.split.update(encapsulated);
+		} catch (IllegalArgumentException e) {
+			splits.remove(encapsulated.splitId);
+			this.free(entry);
+			throw e;
+		}
+		if (stitched != null) {
+			splits.remove(encapsulated.splitId);
+			this.release(entry);
+		}
+		return stitched;
+	}
+
+	/**
+	 * Returns the time at which the next split packet will be evicted due to
+	 * timeout, if it does not receive another chunk before then.
+	 * 
+	 * @return the time at which the next split packet will be evicted due to
+	 *         timeout, {@link Long#MAX_VALUE} if there are no split packets
+	 *         being reassembled.
+	 */
+	long getNextExpirationTime() {
+		long next = Long.MAX_VALUE;
+		for (Entry entry : splits.values()) {
+			next = Math.min(next, entry.lastUpdateTime + timeout);
+		}
+		return next;
+	}
+
+	/**
+	 * Evicts every split packet that has gone without receiving a chunk for
+	 * longer than the split timeout.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @throws SplitQueueOverflowException
+	 *             if a reliable split packet was evicted, as the message it
+	 *             contained can never be received.
+	 */
+	void expire(long currentTime) throws SplitQueueOverflowException {
+		boolean reliable = false;
+		Iterator<Entry> splitsI = splits.values().iterator();
+		while (splitsI.hasNext()) {
+			Entry entry = splitsI.next();
+			if (currentTime - entry.lastUpdateTime >= timeout) {
+				splitsI.remove();
+				this.free(entry);
+				reliable |= entry.isReliable();
+				logger.debug("Evicted " + (entry.isReliable() ? "reliable" : "unreliable")
+						+ " split packet with split ID " + entry.split.getSplitId() + " due to timeout");
+			}
+		}
+		if (reliable == true) {
+			throw new SplitQueueOverflowException("Reliable split packet timed out");
+		}
+	}
+
+	/**
+	 * Evicts every split packet, freeing all of the memory used by their
+	 * chunks.
+	 * <p>
+	 * Split packets evicted here are not counted, as this is only done when
+	 * the peer disconnects.
+	 */
+	void clear() {
+		for (Entry entry : splits.values()) {
+			this.release(entry);
+		}
+		splits.clear();
+	}
+
+	/**
+	 * Reserves memory for a chunk, if doing so would not go over the memory
+	 * limit of the peer or the shared budget.
+	 * 
+	 * @param size
+	 *            the size of the chunk.
+	 * @return <code>true</code> if the memory was reserved, <code>false</code>
+	 *         otherwise.
+	 */
+	private boolean reserve(long size) {
+		if (used + size > memoryLimit || (budget != null && !budget.reserve(size))) {
+			return false;
+		}
+		this.used += size;
+		return true;
+	}
+
+	/**
+	 * Frees the memory used by the chunks of a split packet that is no longer
+	 * being reassembled.
+	 * 
+	 * @param entry
+	 *            the split packet.
+	 */
+	private void release(Entry entry) {
+		this.used -= entry.size;
+		if (budget != null) {
+			budget.free(entry.size);
+		}
+		entry.split.clear();
+	}
+
+	/**
+	 * Frees the memory used by the chunks of a split packet that has been
+	 * evicted, and counts the eviction.
+	 * 
+	 * @param entry
+	 *            the split packet.
+	 */
+	private void free(Entry entry) {
+		this.release(entry);
+		this.evictionCount++;
+		if (budget != null) {
+			budget.evicted();
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer;
+
+/**
+ * Used to listen for the progress of a stream being sent to a
+ * {@link RakNetPeer}.
+ * <p>
+ * All of these methods are called by the thread updating the peer, so they
+ * should return as quickly as possible.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see RakNetPeer#sendStream(int, java.nio.channels.ReadableByteChannel,
+ *      StreamListener)
+ */
+public interface StreamListener {
+
+	/**
+	 * Called when a chunk of the stream has been acknowledged by the peer.
+	 * <p>
+	 * As chunks can be acknowledged out of order when some of them had to be
+	 * resent, the amount of bytes acknowledged does not mean that every byte
+	 * before it has been received.
+	 * 
+	 * @param peer
+	 *            the peer the stream is being sent to.
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param acknowledged
+	 *            the total amount of bytes of the stream that have been
+	 *            acknowledged so far.
+	 */
+	public default void onProgress(RakNetPeer peer, int streamId, long acknowledged) {
+	}
+
+	/**
+	 * Called when every chunk of the stream has been acknowledged by the
+	 * peer, meaning it has received the stream in full.
+	 * 
+	 * @param peer
+	 *            the peer the stream was sent to.
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param acknowledged
+	 *            the total amount of bytes of the stream that were
+	 *            acknowledged.
+	 */
+	public default void onComplete(RakNetPeer peer, int streamId, long acknowledged) {
+	}
+
+	/**
+	 * Called when the stream could not be sent in full, either because it was
+	 * cancelled, it failed to be read, or the peer disconnected.
+	 * 
+	 * @param peer
+	 *            the peer the stream was being sent to.
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param cause
+	 *            the reason the stream could not be sent in full.
+	 */
+	public default void onFailure(RakNetPeer peer, int streamId, Throwable cause) {
+	}
+
+}
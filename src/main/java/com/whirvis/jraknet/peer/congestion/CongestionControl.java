@@ -0,0 +1,108 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer.congestion;
+
+/**
+ * Used by a {@link com.whirvis.jraknet.peer.RakNetPeer RakNetPeer} to
+ * determine how many bytes it can have in flight at once.
+ * <p>
+ * A custom packet is considered to be in flight from the time it is sent until
+ * it has been acknowledged, reported lost by a <code>NACK</code> packet, or
+ * its retransmission timeout has expired. The peer will not send a custom
+ * packet that would cause the amount of bytes in flight to exceed the
+ * congestion window, unless there is nothing in flight at all.
+ * <p>
+ * Implementations do not have to be thread-safe, as the peer never calls
+ * their methods from more than one thread at a time.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see SlidingWindowCongestionControl
+ * @see CubicCongestionControl
+ */
+public interface CongestionControl {
+
+	/**
+	 * Returns the congestion window.
+	 * 
+	 * @return the amount of bytes that can be in flight at once.
+	 */
+	public int getCongestionWindow();
+
+	/**
+	 * Returns whether or not the congestion control is in slow start.
+	 * <p>
+	 * While in slow start, custom packets are sent with the <i>needs B and
+	 * AS</i> flag set, as is done by vanilla RakNet.
+	 * 
+	 * @return <code>true</code> if the congestion control is in slow start,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isInSlowStart();
+
+	/**
+	 * Called when a custom packet has been acknowledged.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @param size
+	 *            the size of the custom packet.
+	 * @param roundTripTime
+	 *            the measured round trip time of the custom packet,
+	 *            <code>-1</code> if the custom packet contained retransmitted
+	 *            messages.
+	 * @param continuousSend
+	 *            <code>true</code> if the custom packet was sent while there
+	 *            was more data waiting to be sent, <code>false</code>
+	 *            otherwise. The congestion window should only grow when the
+	 *            peer is actually limited by it.
+	 */
+	public void onAcknowledge(long currentTime, int size, long roundTripTime, boolean continuousSend);
+
+	/**
+	 * Called when a custom packet has been reported lost by a
+	 * <code>NACK</code> packet.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @param size
+	 *            the size of the custom packet.
+	 */
+	public void onNotAcknowledge(long currentTime, int size);
+
+	/**
+	 * Called when the retransmission timeout of a custom packet has expired.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 */
+	public void onRetransmissionTimeout(long currentTime);
+
+}
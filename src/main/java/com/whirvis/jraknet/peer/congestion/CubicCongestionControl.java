@@ -0,0 +1,164 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer.congestion;
+
+/**
+ * A CUBIC congestion control, as described in RFC 8312.
+ * <p>
+ * After a loss, the congestion window grows along a cubic function of the
+ * time since the loss, quickly approaching the window at which the loss
+ * occurred, then carefully probing around it before growing quickly again.
+ * This makes it recover much better than the
+ * {@link SlidingWindowCongestionControl sliding window} on links with a high
+ * round trip time or random loss, such as mobile networks.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public class CubicCongestionControl implements CongestionControl {
+
+	/**
+	 * The scaling constant of the cubic function.
+	 */
+	private static final double C = 0.4D;
+
+	/**
+	 * The multiplicative decrease factor applied to the congestion window when
+	 * a loss occurs.
+	 */
+	private static final double BETA = 0.7D;
+
+	private final int maximumTransferUnit;
+	private double congestionWindow;
+	private double slowStartThreshold;
+	private double lastMaximumWindow;
+	private double k;
+	private long epochStart;
+	private long roundTripTime;
+	private long lastBackoffTime;
+
+	/**
+	 * Creates a CUBIC congestion control.
+	 * 
+	 * @param maximumTransferUnit
+	 *            the maximum transfer unit of the peer.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumTransferUnit</code> is less than or
+	 *             equal to <code>0</code>.
+	 */
+	public CubicCongestionControl(int maximumTransferUnit) throws IllegalArgumentException {
+		if (maximumTransferUnit <= 0) {
+			throw new IllegalArgumentException("Maximum transfer unit must be greater than 0");
+		}
+		this.maximumTransferUnit = maximumTransferUnit;
+		this.congestionWindow = maximumTransferUnit;
+		this.epochStart = -1;
+		this.lastBackoffTime = -1;
+	}
+
+	/**
+	 * Reduces the congestion window after a loss, as long as it has not
+	 * already been done within the last round trip.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @return <code>true</code> if the congestion window was reduced,
+	 *         <code>false</code> otherwise.
+	 */
+	private boolean backoff(long currentTime) {
+		if (lastBackoffTime >= 0 && currentTime - lastBackoffTime < roundTripTime) {
+			return false; // Already backed off this round trip
+		}
+		this.lastMaximumWindow = congestionWindow / maximumTransferUnit;
+		this.congestionWindow = Math.max(congestionWindow * BETA, maximumTransferUnit * 2.0D);
+		this.slowStartThreshold = congestionWindow;
+		this.k = Math.cbrt(lastMaximumWindow * (1.0D - BETA) / C);
+		this.epochStart = currentTime;
+		this.lastBackoffTime = currentTime;
+		return true;
+	}
+
+	@Override
+	public int getCongestionWindow() {
+		return (int) this.congestionWindow;
+	}
+
+	@Override
+	public boolean isInSlowStart() {
+		return slowStartThreshold <= 0 || congestionWindow < slowStartThreshold;
+	}
+
+	@Override
+	public void onAcknowledge(long currentTime, int size, long roundTripTime, boolean continuousSend) {
+		if (roundTripTime >= 0) {
+			this.roundTripTime = roundTripTime;
+		}
+		if (continuousSend == false) {
+			return; // Window was not the limit, do not grow it
+		} else if (this.isInSlowStart()) {
+			this.congestionWindow += size;
+			return;
+		} else if (epochStart < 0) {
+			this.lastMaximumWindow = congestionWindow / maximumTransferUnit;
+			this.k = 0.0D;
+			this.epochStart = currentTime;
+		}
+
+		/*
+		 * The target window is calculated in units of the maximum transfer
+		 * unit, one round trip into the future. The window is never allowed to
+		 * grow slower than standard TCP would have grown it.
+		 */
+		double window = congestionWindow / maximumTransferUnit;
+		double rtt = Math.max(roundTripTime, 1L) / 1000.0D;
+		double t = (currentTime - epochStart) / 1000.0D + rtt;
+		double target = C * Math.pow(t - k, 3) + lastMaximumWindow;
+		double estimated = lastMaximumWindow * BETA + 3.0D * (1.0D - BETA) / (1.0D + BETA) * (t / rtt);
+		target = Math.max(target, estimated);
+		if (target > window) {
+			double increase = (target - window) / window * ((double) size / maximumTransferUnit);
+			this.congestionWindow += Math.min(increase, window / 2.0D) * maximumTransferUnit;
+		}
+	}
+
+	@Override
+	public void onNotAcknowledge(long currentTime, int size) {
+		this.backoff(currentTime);
+	}
+
+	@Override
+	public void onRetransmissionTimeout(long currentTime) {
+		if (this.backoff(currentTime)) {
+			this.congestionWindow = maximumTransferUnit;
+			this.epochStart = -1;
+		}
+	}
+
+}
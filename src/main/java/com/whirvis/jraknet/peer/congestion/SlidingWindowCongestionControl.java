@@ -0,0 +1,132 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer.congestion;
+
+/**
+ * A sliding window congestion control, modeled after the one used by vanilla
+ * RakNet.
+ * <p>
+ * The congestion window starts at a single maximum transfer unit and grows by
+ * the size of every acknowledged custom packet while in slow start, and by
+ * roughly one maximum transfer unit per round trip afterwards. When a custom
+ * packet is reported lost, the window is halved at most once per round trip.
+ * When a retransmission timeout expires, the window falls back to a single
+ * maximum transfer unit and slow start begins again.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public class SlidingWindowCongestionControl implements CongestionControl {
+
+	private final int maximumTransferUnit;
+	private double congestionWindow;
+	private double slowStartThreshold;
+	private long roundTripTime;
+	private long lastBackoffTime;
+
+	/**
+	 * Creates a sliding window congestion control.
+	 * 
+	 * @param maximumTransferUnit
+	 *            the maximum transfer unit of the peer.
+	 * @throws IllegalArgumentException
+	 *             if the <code>maximumTransferUnit</code> is less than or
+	 *             equal to <code>0</code>.
+	 */
+	public SlidingWindowCongestionControl(int maximumTransferUnit) throws IllegalArgumentException {
+		if (maximumTransferUnit <= 0) {
+			throw new IllegalArgumentException("Maximum transfer unit must be greater than 0");
+		}
+		this.maximumTransferUnit = maximumTransferUnit;
+		this.congestionWindow = maximumTransferUnit;
+		this.lastBackoffTime = -1;
+	}
+
+	/**
+	 * Reduces the slow start threshold to half of the congestion window, as
+	 * long as it has not already been done within the last round trip.
+	 * 
+	 * @param currentTime
+	 *            the current time.
+	 * @return <code>true</code> if the slow start threshold was reduced,
+	 *         <code>false</code> otherwise.
+	 */
+	private boolean backoff(long currentTime) {
+		if (lastBackoffTime >= 0 && currentTime - lastBackoffTime < roundTripTime) {
+			return false; // Already backed off this round trip
+		}
+		this.slowStartThreshold = Math.max(congestionWindow / 2.0D, maximumTransferUnit * 2.0D);
+		this.lastBackoffTime = currentTime;
+		return true;
+	}
+
+	@Override
+	public int getCongestionWindow() {
+		return (int) this.congestionWindow;
+	}
+
+	@Override
+	public boolean isInSlowStart() {
+		return slowStartThreshold <= 0 || congestionWindow <= slowStartThreshold;
+	}
+
+	@Override
+	public void onAcknowledge(long currentTime, int size, long roundTripTime, boolean continuousSend) {
+		if (roundTripTime >= 0) {
+			this.roundTripTime = roundTripTime;
+		}
+		if (continuousSend == false) {
+			return; // Window was not the limit, do not grow it
+		} else if (this.isInSlowStart()) {
+			this.congestionWindow += size;
+			if (slowStartThreshold > 0 && congestionWindow > slowStartThreshold) {
+				this.congestionWindow = slowStartThreshold
+						+ (double) maximumTransferUnit * maximumTransferUnit / congestionWindow;
+			}
+		} else {
+			this.congestionWindow += (double) maximumTransferUnit * size / congestionWindow;
+		}
+	}
+
+	@Override
+	public void onNotAcknowledge(long currentTime, int size) {
+		if (this.backoff(currentTime)) {
+			this.congestionWindow = slowStartThreshold;
+		}
+	}
+
+	@Override
+	public void onRetransmissionTimeout(long currentTime) {
+		if (this.backoff(currentTime)) {
+			this.congestionWindow = maximumTransferUnit;
+		}
+	}
+
+}
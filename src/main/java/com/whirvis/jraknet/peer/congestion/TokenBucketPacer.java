@@ -0,0 +1,148 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.peer.congestion;
+
+/**
+ * A token bucket used by a {@link com.whirvis.jraknet.peer.RakNetPeer
+ * RakNetPeer} to spread the custom packets it sends over time.
+ * <p>
+ * The bucket is refilled with tokens at the pacing rate, with every token
+ * allowing a single byte to be sent. It can never hold more tokens than the
+ * burst size, which is the amount of bytes that can be sent back to back when
+ * the peer has been idle. The peer can send while the bucket has tokens left,
+ * which means the bucket can go into debt by up to a single custom packet.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class TokenBucketPacer {
+
+	private int burstSize;
+	private double tokens;
+	private long lastRefillTime;
+
+	/**
+	 * Creates a token bucket pacer.
+	 * 
+	 * @param burstSize
+	 *            the amount of bytes that can be sent back to back.
+	 * @throws IllegalArgumentException
+	 *             if the <code>burstSize</code> is less than or equal to
+	 *             <code>0</code>.
+	 */
+	public TokenBucketPacer(int burstSize) throws IllegalArgumentException {
+		this.setBurstSize(burstSize);
+		this.tokens = burstSize;
+		this.lastRefillTime = System.nanoTime();
+	}
+
+	/**
+	 * Returns the burst size.
+	 * 
+	 * @return the amount of bytes that can be sent back to back.
+	 */
+	public int getBurstSize() {
+		return this.burstSize;
+	}
+
+	/**
+	 * Sets the burst size.
+	 * 
+	 * @param burstSize
+	 *            the amount of bytes that can be sent back to back.
+	 * @throws IllegalArgumentException
+	 *             if the <code>burstSize</code> is less than or equal to
+	 *             <code>0</code>.
+	 */
+	public void setBurstSize(int burstSize) throws IllegalArgumentException {
+		if (burstSize <= 0) {
+			throw new IllegalArgumentException("Burst size must be greater than 0");
+		}
+		this.burstSize = burstSize;
+		this.tokens = Math.min(tokens, burstSize);
+	}
+
+	/**
+	 * Refills the bucket with the tokens gained since it was last refilled.
+	 * 
+	 * @param currentTime
+	 *            the current time in nanoseconds, as returned by
+	 *            {@link System#nanoTime()}.
+	 * @param rate
+	 *            the pacing rate in bytes per millisecond. A rate of
+	 *            <code>0</code> or lower will fill the bucket entirely, as
+	 *            there is nothing to pace by.
+	 */
+	public void refill(long currentTime, double rate) {
+		if (rate <= 0) {
+			this.tokens = burstSize;
+		} else {
+			this.tokens = Math.min(burstSize, tokens + (currentTime - lastRefillTime) / 1000000.0D * rate);
+		}
+		this.lastRefillTime = currentTime;
+	}
+
+	/**
+	 * Returns whether or not a custom packet can be sent.
+	 * 
+	 * @return <code>true</code> if there are tokens left in the bucket,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean canSend() {
+		return tokens > 0;
+	}
+
+	/**
+	 * Returns how long it will take for a custom packet to be able to be sent.
+	 * 
+	 * @param rate
+	 *            the pacing rate in bytes per millisecond.
+	 * @return how long it will take for a custom packet to be able to be sent
+	 *         in milliseconds, <code>0</code> if one can be sent right away.
+	 */
+	public long getDelay(double rate) {
+		if (this.canSend() || rate <= 0) {
+			return 0L;
+		}
+		return Math.max((long) Math.ceil(-tokens / rate), 1L);
+	}
+
+	/**
+	 * Takes the tokens needed to send a custom packet of the specified size
+	 * from the bucket.
+	 * 
+	 * @param size
+	 *            the size of the custom packet.
+	 */
+	public void onSend(int size) {
+		this.tokens -= size;
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.protocol;
+
+/**
+ * Represents a RakNet priority. Priorities determine how soon packets are sent
+ * compared to other packets that are waiting to be sent.
+ * <p>
+ * Packets with a higher priority are sent more often than packets with a
+ * lower priority, but packets with a lower priority are never starved. When
+ * all priorities have packets waiting, packets with a {@link #HIGH} priority
+ * are sent twice as often as packets with a {@link #MEDIUM} priority, which in
+ * turn are sent twice as often as packets with a {@link #LOW} priority.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public enum Priority {
+
+	/**
+	 * The packet will be flushed by the event loop of the peer as soon as it
+	 * gets to it, rather than waiting for the next update of the peer. It is
+	 * only sent before the call that sent it returns when that call is made
+	 * from the event loop of the peer. This also skips the congestion control
+	 * of the peer, and should only be used sparingly.
+	 */
+	IMMEDIATE(0),
+
+	/**
+	 * The packet will be sent before packets with a {@link #MEDIUM} or
+	 * {@link #LOW} priority.
+	 */
+	HIGH(4),
+
+	/**
+	 * The packet will be sent before packets with a {@link #LOW} priority.
+	 * This is the default priority.
+	 */
+	MEDIUM(2),
+
+	/**
+	 * The packet will be sent after packets of every other priority.
+	 */
+	LOW(1);
+
+	private final int weight;
+
+	/**
+	 * Constructs a <code>Priority</code>.
+	 * 
+	 * @param weight
+	 *            the weight of the priority.
+	 */
+	private Priority(int weight) {
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns the weight of the priority. This is how often packets with the
+	 * priority are sent compared to packets with other priorities, when all
+	 * of them have packets waiting to be sent.
+	 * 
+	 * @return the weight of the priority, <code>0</code> if packets with the
+	 *         priority are not scheduled at all and are instead sent right
+	 *         away.
+	 */
+	public int getWeight() {
+		return this.weight;
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.protocol;
+
+/**
+ * Used to do arithmetic on the <code>24-bit</code> sequence numbers, message
+ * indexes, and order indexes used by the RakNet protocol.
+ * <p>
+ * These values are sent as unsigned <code>triads</code>, and as such wrap
+ * back around to <code>0</code> after {@value #MAX_VALUE}. To keep working
+ * correctly after they have wrapped around, these values must never be
+ * compared with the <code>&lt;</code> and <code>&gt;</code> operators.
+ * Instead, they are compared using serial number arithmetic as described in
+ * <a href="https://tools.ietf.org/html/rfc1982">RFC 1982</a>, where a value is
+ * considered newer than another if it is less than half of the number space
+ * ahead of it.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class SerialNumber {
+
+	/**
+	 * The amount of bits in a serial number.
+	 */
+	public static final int BITS = 24;
+
+	/**
+	 * The highest value a serial number can have before wrapping back around
+	 * to <code>0</code>.
+	 */
+	public static final int MAX_VALUE = (1 << BITS) - 1;
+
+	/**
+	 * Half of the serial number space. Serial numbers that are this far apart
+	 * or further cannot be reliably compared.
+	 */
+	private static final int HALF = 1 << (BITS - 1);
+
+	private SerialNumber() {
+		// Static class
+	}
+
+	/**
+	 * Returns the serial number after the specified serial number.
+	 * 
+	 * @param serial
+	 *            the serial number.
+	 * @return the serial number after <code>serial</code>, wrapping back
+	 *         around to <code>0</code> after {@value #MAX_VALUE}.
+	 */
+	public static int next(int serial) {
+		return (serial + 1) & MAX_VALUE;
+	}
+
+	/**
+	 * Adds the specified amount to the specified serial number.
+	 * 
+	 * @param serial
+	 *            the serial number.
+	 * @param amount
+	 *            the amount to add, which may be negative.
+	 * @return the serial number <code>amount</code> after <code>serial</code>,
+	 *         wrapping back around if needed.
+	 */
+	public static int add(int serial, int amount) {
+		return (serial + amount) & MAX_VALUE;
+	}
+
+	/**
+	 * Returns the distance from one serial number to another.
+	 * 
+	 * @param serial
+	 *            the serial number.
+	 * @param from
+	 *            the serial number to measure the distance from.
+	 * @return the distance from <code>from</code> to <code>serial</code>. This
+	 *         is positive if <code>serial</code> is newer than
+	 *         <code>from</code>, negative if <code>serial</code> is older than
+	 *         <code>from</code>, and <code>0</code> if they are the same
+	 *         serial number.
+	 */
+	public static int difference(int serial, int from) {
+		int difference = (serial - from) & MAX_VALUE;
+		return difference >= HALF ? difference - (MAX_VALUE + 1) : difference;
+	}
+
+	/**
+	 * Returns whether or not a serial number is newer than another.
+	 * 
+	 * @param serial
+	 *            the serial number.
+	 * @param than
+	 *            the serial number to compare to.
+	 * @return <code>true</code> if <code>serial</code> is newer than
+	 *         <code>than</code>, <code>false</code> otherwise.
+	 */
+	public static boolean isNewer(int serial, int than) {
+		return difference(serial, than) > 0;
+	}
+
+}
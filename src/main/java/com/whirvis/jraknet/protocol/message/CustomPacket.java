@@ -55,6 +55,18 @@ import com.whirvis.jraknet.protocol.message.acknowledge.Record;
  */
 public class CustomPacket extends RakNetPacket {
 
+	/**
+	 * The flag set in the ID of a custom packet which was sent while there was
+	 * more data waiting to be sent.
+	 */
+	public static final int FLAG_CONTINUOUS_SEND = 0x08;
+
+	/**
+	 * The flag set in the ID of a custom packet which was sent while the
+	 * sender's congestion control was in slow start.
+	 */
+	public static final int FLAG_NEEDS_B_AND_AS = 0x04;
+
 	/**
 	 * The minimum size of a custom packet.
 	 */
@@ -77,6 +89,29 @@ public class CustomPacket extends RakNetPacket {
 		return size;
 	}
 
+	/**
+	 * Returns the sequence ID of the specified custom packet without decoding
+	 * it.
+	 * <p>
+	 * This allows for duplicate custom packets to be discarded before any of
+	 * the encapsulated packets inside of them are decoded.
+	 * 
+	 * @param packet
+	 *            the custom packet, whose ID must have already been read.
+	 * @return the sequence ID of the custom packet.
+	 * @throws NullPointerException
+	 *             if the <code>packet</code> is <code>null</code>.
+	 * @throws IndexOutOfBoundsException
+	 *             if there are less than <code>3</code> readable bytes left in
+	 *             the packet.
+	 */
+	public static int getSequenceId(Packet packet) throws NullPointerException, IndexOutOfBoundsException {
+		if (packet == null) {
+			throw new NullPointerException("Packet cannot be null");
+		}
+		return packet.buffer().getUnsignedMediumLE(packet.buffer().readerIndex());
+	}
+
 	/**
 	 * The sequence ID of the packet.
 	 */
@@ -112,6 +147,21 @@ public class CustomPacket extends RakNetPacket {
 		}
 	}
 
+	/**
+	 * Creates a custom packet to be encoded with the specified datagram flags.
+	 * 
+	 * @param continuousSend
+	 *            <code>true</code> if the packet is being sent while there is
+	 *            more data waiting to be sent, <code>false</code> otherwise.
+	 * @param needsBAndAs
+	 *            <code>true</code> if the sender's congestion control is in
+	 *            slow start, <code>false</code> otherwise.
+	 * @see #encode()
+	 */
+	public CustomPacket(boolean continuousSend, boolean needsBAndAs) {
+		this(ID_CUSTOM_0 | (continuousSend ? FLAG_CONTINUOUS_SEND : 0) | (needsBAndAs ? FLAG_NEEDS_B_AND_AS : 0));
+	}
+
 	/**
 	 * Creates a <code>CUSTOM</code> packet to be decoded.
 	 * 
@@ -123,6 +173,29 @@ public class CustomPacket extends RakNetPacket {
 		super(packet);
 	}
 
+	/**
+	 * Returns whether or not the packet was sent while there was more data
+	 * waiting to be sent.
+	 * 
+	 * @return <code>true</code> if the packet was sent while there was more
+	 *         data waiting to be sent, <code>false</code> otherwise.
+	 */
+	public boolean isContinuousSend() {
+		return (this.getId() & FLAG_CONTINUOUS_SEND) != 0;
+	}
+
+	/**
+	 * Returns whether or not the packet was sent while the sender's
+	 * congestion control was in slow start.
+	 * 
+	 * @return <code>true</code> if the packet was sent while the sender's
+	 *         congestion control was in slow start, <code>false</code>
+	 *         otherwise.
+	 */
+	public boolean needsBAndAs() {
+		return (this.getId() & FLAG_NEEDS_B_AND_AS) != 0;
+	}
+
 	@Override
 	public void encode() {
 		this.writeTriadLE(sequenceId);
@@ -141,7 +214,7 @@ public class CustomPacket extends RakNetPacket {
 
 	@Override
 	public void decode() {
-		this.sequenceId = this.readTriadLE();
+		this.sequenceId = this.readUnsignedTriadLE();
 		ArrayList<EncapsulatedPacket> messages = new ArrayList<EncapsulatedPacket>();
 		ArrayList<EncapsulatedPacket> ackMessages = new ArrayList<EncapsulatedPacket>();
 		while (this.remaining() >= EncapsulatedPacket.MINIMUM_SIZE) {
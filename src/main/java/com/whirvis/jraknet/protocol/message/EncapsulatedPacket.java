@@ -32,11 +32,14 @@ package com.whirvis.jraknet.protocol.message;
 import java.util.Arrays;
 
 import com.whirvis.jraknet.Packet;
-import com.whirvis.jraknet.map.IntMap;
 import com.whirvis.jraknet.peer.RakNetPeer;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.message.acknowledge.Record;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
 /**
  * An encapsulated packet.
  * <p>
@@ -86,6 +89,20 @@ public final class EncapsulatedPacket implements Cloneable {
 
 		/**
 		 * Splits the packet.
+		 * <p>
+		 * The payload of each split packet is a retained slice of the
+		 * original payload, meaning no data is copied. Each slice must be
+		 * released once its split packet is no longer needed, that being after
+		 * it has been sent if it is unreliable, or after it has been
+		 * acknowledged if it is reliable. Releasing a slice only returns the
+		 * reference it retained on the original payload, which is still owned
+		 * by the caller.
+		 * <p>
+		 * If the packet is reliable, the first split packet reuses the message
+		 * index already assigned to the original packet, and the rest are
+		 * given new message indexes by the peer. Otherwise, the message index
+		 * of the original packet would never be sent, leaving a hole in the
+		 * reliable window of the peer receiving it that can never be filled.
 		 * 
 		 * @param peer
 		 *            the peer.
@@ -113,36 +130,27 @@ public final class EncapsulatedPacket implements Cloneable {
 				throw new IllegalArgumentException("Encapsulated packet is too small to be split");
 			}
 
-			// Split packet payload
+			// Generate split encapsulated packets
 			int size = peer.getMaximumTransferUnit() - CustomPacket.MINIMUM_SIZE
 					- EncapsulatedPacket.size(encapsulated.reliability, true);
-			byte[] src = encapsulated.payload.array();
-			int payloadIndex = 0;
-			int splitIndex = 0;
-			byte[][] split = new byte[(int) Math.ceil((float) src.length / (float) size)][size];
-			while (payloadIndex < src.length) {
-				if (payloadIndex + size <= src.length) {
-					split[splitIndex++] = Arrays.copyOfRange(src, payloadIndex, payloadIndex + size);
-					payloadIndex += size;
-				} else {
-					split[splitIndex++] = Arrays.copyOfRange(src, payloadIndex, src.length);
-					payloadIndex = src.length;
-				}
-			}
-
-			// Generate split encapsulated packets
-			EncapsulatedPacket[] splitPackets = new EncapsulatedPacket[split.length];
-			for (int i = 0; i < split.length; i++) {
+			ByteBuf src = encapsulated.payload.buffer();
+			int length = encapsulated.payload.size();
+			EncapsulatedPacket[] splitPackets = new EncapsulatedPacket[(length + size - 1) / size];
+			for (int i = 0; i < splitPackets.length; i++) {
+				int payloadIndex = i * size;
 				EncapsulatedPacket encapsulatedSplit = new EncapsulatedPacket();
 				encapsulatedSplit.reliability = encapsulated.reliability;
-				encapsulatedSplit.payload = new Packet(split[i]);
-				encapsulatedSplit.messageIndex = encapsulated.reliability.isReliable() ? peer.bumpMessageIndex() : 0;
+				encapsulatedSplit.payload = new Packet(
+						src.retainedSlice(payloadIndex, Math.min(size, length - payloadIndex)));
+				if (encapsulated.reliability.isReliable()) {
+					encapsulatedSplit.messageIndex = i == 0 ? encapsulated.messageIndex : peer.bumpMessageIndex();
+				}
 				if (encapsulated.reliability.isOrdered() || encapsulated.reliability.isSequenced()) {
 					encapsulatedSplit.orderChannel = encapsulated.orderChannel;
 					encapsulatedSplit.orderIndex = encapsulated.orderIndex;
 				}
 				encapsulatedSplit.split = true;
-				encapsulatedSplit.splitCount = split.length;
+				encapsulatedSplit.splitCount = splitPackets.length;
 				encapsulatedSplit.splitId = encapsulated.splitId;
 				encapsulatedSplit.splitIndex = i;
 				splitPackets[i] = encapsulatedSplit;
@@ -153,7 +161,8 @@ public final class EncapsulatedPacket implements Cloneable {
 		private final int splitId;
 		private final int splitCount;
 		private final Reliability reliability;
-		private final IntMap<Packet> payloads;
+		private final ByteBuf[] payloads;
+		private int received;
 
 		/**
 		 * Creates a split packet container.
@@ -166,14 +175,16 @@ public final class EncapsulatedPacket implements Cloneable {
 		 *            the reliability.
 		 * @throws IllegalArgumentException
 		 *             if the <code>splitId</code> is negative or if the
-		 *             <code>splitCount</code> is greater than
-		 *             {@value RakNetPeer#MAX_SPLIT_COUNT}.
+		 *             <code>splitCount</code> is less than <code>1</code> or
+		 *             greater than {@value RakNetPeer#MAX_SPLIT_COUNT}.
 		 * @throws NullPointerException
 		 *             if the <code>reliability</code> is <code>null</code>.
 		 */
 		public Split(int splitId, int splitCount, Reliability reliability) {
 			if (splitId < 0) {
 				throw new IllegalArgumentException("Split ID cannot be negative");
+			} else if (splitCount < 1) {
+				throw new IllegalArgumentException("Split count must be at least 1");
 			} else if (splitCount > RakNetPeer.MAX_SPLIT_COUNT) {
 				throw new IllegalArgumentException("Split count can be no greater than " + RakNetPeer.MAX_SPLIT_COUNT);
 			} else if (reliability == null) {
@@ -182,7 +193,16 @@ public final class EncapsulatedPacket implements Cloneable {
 			this.splitId = splitId;
 			this.splitCount = splitCount;
 			this.reliability = reliability;
-			this.payloads = new IntMap<Packet>();
+			this.payloads = new ByteBuf[splitCount];
+		}
+
+		/**
+		 * Returns the split ID of the split packet.
+		 * 
+		 * @return the split ID of the split packet.
+		 */
+		public int getSplitId() {
+			return this.splitId;
 		}
 
 		/**
@@ -224,17 +244,18 @@ public final class EncapsulatedPacket implements Cloneable {
 				throw new IllegalArgumentException("This split packet does not belong to this one");
 			} else if (encapsulated.splitIndex < 0 || encapsulated.splitIndex >= encapsulated.splitCount) {
 				throw new IllegalArgumentException("Encapsulated packet split index out of range");
-			} else if (payloads.containsKey(encapsulated.splitIndex)) {
+			} else if (payloads[encapsulated.splitIndex] != null) {
 				throw new IllegalArgumentException("Encapsulated packet with split index has already been registered");
 			}
-			payloads.put(encapsulated.splitIndex, encapsulated.payload);
-			if (payloads.size() >= splitCount) {
-				// Stitch payload
-				Packet payload = new Packet();
-				for (int i = 0; i < payloads.size(); i++) {
-					payload.write(payloads.get(i).array());
-				}
-				payloads.clear();
+			payloads[encapsulated.splitIndex] = encapsulated.payload.buffer();
+			if (++received >= splitCount) {
+				/*
+				 * The payload is stitched together by wrapping the buffers of
+				 * every chunk in a single composite buffer. This way, none of
+				 * the chunks have to be copied again.
+				 */
+				Packet payload = new Packet(Unpooled.wrappedBuffer(payloads));
+				Arrays.fill(payloads, null);
 
 				// Create stitched encapsulated packet
 				EncapsulatedPacket stitched = new EncapsulatedPacket();
@@ -253,6 +274,17 @@ public final class EncapsulatedPacket implements Cloneable {
 			return null;
 		}
 
+		/**
+		 * Discards every chunk that has been received so far.
+		 * <p>
+		 * This is used when the split packet is evicted before all of its
+		 * chunks have been received, so the memory used by them can be freed.
+		 */
+		public void clear() {
+			Arrays.fill(payloads, null);
+			this.received = 0;
+		}
+
 		@Override
 		public String toString() {
 			return "Split [splitId=" + splitId + ", splitCount=" + splitCount + ", reliability=" + reliability + "]";
@@ -308,6 +340,7 @@ public final class EncapsulatedPacket implements Cloneable {
 
 	private boolean isClone;
 	private EncapsulatedPacket clone;
+	private ByteBuf encoded;
 
 	/**
 	 * The acknowledgement record. This is only used if the reliability is of
@@ -329,6 +362,51 @@ public final class EncapsulatedPacket implements Cloneable {
 	 */
 	public Record ackRecord;
 
+	/**
+	 * The time the packet was added to the send queue of the peer it is being
+	 * sent to.
+	 * <p>
+	 * This is <i>not</i> used for packet encoding. Rather, it is used by the
+	 * peer to determine whether or not the packet has waited long enough to be
+	 * sent when the channel it is being sent on has a coalescing delay.
+	 * 
+	 * @see com.whirvis.jraknet.peer.RakNetPeer#setCoalescingDelay(int, long)
+	 *      RakNetPeer.setCoalescingDelay(int, long)
+	 */
+	public long queueTime;
+
+	/**
+	 * The time at which the packet expires, <code>0</code> if it never
+	 * expires. This is only ever used if the reliability is of the
+	 * {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 * {@link Reliability#UNRELIABLE_SEQUENCED UNRELIABLE_SEQUENCED} type.
+	 * <p>
+	 * This is <i>not</i> used for packet encoding. Rather, it is used by the
+	 * peer to discard the packet instead of sending it if it is still waiting
+	 * in the send queue by the time it has expired.
+	 * 
+	 * @see com.whirvis.jraknet.peer.RakNetPeerMessenger#sendMessage(Reliability,
+	 *      com.whirvis.jraknet.protocol.Priority, int, Packet, long)
+	 *      RakNetPeerMessenger.sendMessage(Reliability, Priority, int, Packet,
+	 *      long)
+	 */
+	public long expirationTime;
+
+	/**
+	 * The key of the packet if it was sent as a replaceable message,
+	 * <code>null</code> otherwise.
+	 * <p>
+	 * This is <i>not</i> used for packet encoding. Rather, it is used by the
+	 * peer to find the packet in its send queue when a newer message with the
+	 * same key is sent before this one has been.
+	 * 
+	 * @see com.whirvis.jraknet.peer.RakNetPeerMessenger#sendReplaceableMessage(Object,
+	 *      Reliability, com.whirvis.jraknet.protocol.Priority, int, Packet)
+	 *      RakNetPeerMessenger.sendReplaceableMessage(Object, Reliability,
+	 *      Priority, int, Packet)
+	 */
+	public Object replaceKey;
+
 	/**
 	 * The packet reliability.
 	 */
@@ -447,11 +525,6 @@ public final class EncapsulatedPacket implements Cloneable {
 		} else if (payload == null) {
 			throw new NullPointerException("Payload cannot be null");
 		}
-		byte flags = 0x00;
-		flags |= reliability.getId() << FLAG_RELIABILITY_INDEX;
-		flags |= split == true ? FLAG_SPLIT : 0;
-		buffer.writeByte(flags);
-		buffer.writeUnsignedShort(payload.size() * Byte.SIZE);
 		if (ackRecord == null && reliability.requiresAck()) {
 			throw new NullPointerException("No ACK record set for encapsulated packet with reliability " + reliability);
 		} else if (ackRecord != null) {
@@ -459,6 +532,25 @@ public final class EncapsulatedPacket implements Cloneable {
 				throw new IllegalArgumentException("ACK record cannot be ranged");
 			}
 		}
+		if (encoded != null) {
+			buffer.buffer().writeBytes(encoded, encoded.readerIndex(), encoded.readableBytes());
+		} else {
+			this.write(buffer);
+		}
+	}
+
+	/**
+	 * Writes the encoded packet to the specified buffer.
+	 * 
+	 * @param buffer
+	 *            the buffer to write to.
+	 */
+	private void write(Packet buffer) {
+		byte flags = 0x00;
+		flags |= reliability.getId() << FLAG_RELIABILITY_INDEX;
+		flags |= split == true ? FLAG_SPLIT : 0;
+		buffer.writeByte(flags);
+		buffer.writeUnsignedShort(payload.size() * Byte.SIZE);
 		if (reliability.isReliable()) {
 			buffer.writeTriadLE(messageIndex);
 		}
@@ -471,7 +563,65 @@ public final class EncapsulatedPacket implements Cloneable {
 			buffer.writeUnsignedShort(splitId);
 			buffer.writeInt(splitIndex);
 		}
-		buffer.write(payload.array());
+		buffer.buffer().writeBytes(payload.buffer(), 0, payload.size());
+	}
+
+	/**
+	 * Encodes the packet into a pooled buffer which is kept until it is
+	 * released with {@link #releaseEncoding()}. Until then, the
+	 * {@link #encode(Packet)} method writes the cached bytes rather than
+	 * encoding the packet again.
+	 * <p>
+	 * This is used for reliable packets, which can be sent more than once if
+	 * they are lost in transmission. Everything that is encoded stays the same
+	 * when a packet is resent, so there is no reason to encode it again. If the
+	 * encoding has already been cached, this method does nothing.
+	 * 
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code> or <code>payload</code> are
+	 *             <code>null</code>.
+	 */
+	public void cacheEncoding() throws NullPointerException {
+		if (reliability == null) {
+			throw new NullPointerException("Reliability cannot be null");
+		} else if (payload == null) {
+			throw new NullPointerException("Payload cannot be null");
+		} else if (encoded != null) {
+			return; // Already cached
+		}
+		ByteBuf encoded = PooledByteBufAllocator.DEFAULT.buffer(this.size());
+		try {
+			this.write(new Packet(encoded));
+		} catch (RuntimeException e) {
+			encoded.release();
+			throw e;
+		}
+		this.encoded = encoded;
+	}
+
+	/**
+	 * Returns whether or not the encoding of the packet has been cached.
+	 * 
+	 * @return <code>true</code> if the encoding of the packet has been cached,
+	 *         <code>false</code> otherwise.
+	 * @see #cacheEncoding()
+	 */
+	public boolean isEncodingCached() {
+		return this.encoded != null;
+	}
+
+	/**
+	 * Releases the cached encoding of the packet, if it has been cached. This
+	 * must be called once the packet will no longer be sent, otherwise the
+	 * pooled buffer will never be returned to its pool.
+	 * 
+	 * @see #cacheEncoding()
+	 */
+	public void releaseEncoding() {
+		if (encoded != null) {
+			encoded.release();
+			this.encoded = null;
+		}
 	}
 
 	/**
@@ -497,10 +647,10 @@ public final class EncapsulatedPacket implements Cloneable {
 		this.split = (flags & FLAG_SPLIT) > 0;
 		int length = buffer.readUnsignedShort() / Byte.SIZE;
 		if (reliability.isReliable()) {
-			this.messageIndex = buffer.readTriadLE();
+			this.messageIndex = buffer.readUnsignedTriadLE();
 		}
 		if (reliability.isOrdered() || reliability.isSequenced()) {
-			this.orderIndex = buffer.readTriadLE();
+			this.orderIndex = buffer.readUnsignedTriadLE();
 			this.orderChannel = buffer.readByte();
 		}
 		if (split == true) {
@@ -508,7 +658,7 @@ public final class EncapsulatedPacket implements Cloneable {
 			this.splitId = buffer.readUnsignedShort();
 			this.splitIndex = buffer.readInt();
 		}
-		this.payload = new Packet(buffer.read(length));
+		this.payload = new Packet(Unpooled.wrappedBuffer(buffer.read(length)));
 	}
 
 	/**
@@ -556,6 +706,31 @@ public final class EncapsulatedPacket implements Cloneable {
 		return Split.split(peer, this);
 	}
 
+	/**
+	 * Returns a copy of the packet which is not kept as its clone.
+	 * <p>
+	 * This is used when a copy of the packet must be made before all of its
+	 * fields have been assigned. The clone returned by {@link #getClone()} can
+	 * then still be made once they have been, rather than having it carry the
+	 * values the packet had at the time it was copied.
+	 * 
+	 * @return a copy of the packet.
+	 * @throws RuntimeException
+	 *             if a <code>CloneNotSupportedException</code> is caught
+	 *             despite the packet being cloneable.
+	 */
+	public EncapsulatedPacket copy() throws RuntimeException {
+		try {
+			EncapsulatedPacket copy = (EncapsulatedPacket) super.clone();
+			copy.isClone = true;
+			copy.clone = null;
+			copy.encoded = null; // Owned by the original
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Returns the cloned packet. If the packet has not yet been cloned, the
 	 * {@link #clone()} method will be called automatically. This method is
@@ -599,6 +774,7 @@ public final class EncapsulatedPacket implements Cloneable {
 		}
 		this.clone = (EncapsulatedPacket) super.clone();
 		clone.isClone = true;
+		clone.encoded = null; // Owned by the original
 		return this.clone;
 	}
 
@@ -0,0 +1,134 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.protocol.message;
+
+import com.whirvis.jraknet.Packet;
+import com.whirvis.jraknet.RakNetPacket;
+
+/**
+ * A <code>FILE_LIST_TRANSFER_FILE</code> packet.
+ * <p>
+ * This packet is used to send a chunk of a stream of data that is too big to
+ * be sent in a single message, or that is not available all at once. Every
+ * chunk of a stream is sent {@link com.whirvis.jraknet.protocol.Reliability#RELIABLE_ORDERED
+ * RELIABLE_ORDERED} on the same channel and fits within a single
+ * {@link CustomPacket}, meaning chunks are never split. The last chunk of a
+ * stream has either the {@link #STATE_END} or {@link #STATE_ABORT} state,
+ * and does not have to contain any data.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see com.whirvis.jraknet.peer.RakNetPeer#sendStream(int,
+ *      java.nio.channels.ReadableByteChannel,
+ *      com.whirvis.jraknet.peer.StreamListener)
+ *      RakNetPeer.sendStream(int, ReadableByteChannel, StreamListener)
+ */
+public final class StreamChunk extends RakNetPacket {
+
+	/**
+	 * More chunks of the stream will follow this one.
+	 */
+	public static final int STATE_DATA = 0x00;
+
+	/**
+	 * This is the last chunk of the stream, which has been sent in full.
+	 */
+	public static final int STATE_END = 0x01;
+
+	/**
+	 * This is the last chunk of the stream, which was cancelled or failed to
+	 * be read by the sender before it could be sent in full.
+	 */
+	public static final int STATE_ABORT = 0x02;
+
+	/**
+	 * The size of a chunk without any data.
+	 */
+	public static final int HEADER_SIZE = 4;
+
+	/**
+	 * The ID of the stream the chunk belongs to.
+	 */
+	public int streamId;
+
+	/**
+	 * The state of the stream after this chunk.
+	 */
+	public int state;
+
+	/**
+	 * The data of the chunk. When encoding, this can be <code>null</code> if
+	 * the chunk does not contain any data.
+	 */
+	public Packet data;
+
+	/**
+	 * Creates a <code>FILE_LIST_TRANSFER_FILE</code> packet to be encoded.
+	 * 
+	 * @see #encode()
+	 */
+	public StreamChunk() {
+		super(ID_FILE_LIST_TRANSFER_FILE);
+	}
+
+	/**
+	 * Creates a <code>FILE_LIST_TRANSFER_FILE</code> packet to be decoded.
+	 * 
+	 * @param packet
+	 *            the original packet whose data will be read from in the
+	 *            {@link #decode()} method.
+	 */
+	public StreamChunk(Packet packet) {
+		super(packet);
+	}
+
+	@Override
+	public void encode() {
+		this.writeUnsignedShort(streamId);
+		this.writeUnsignedByte(state);
+		if (data != null) {
+			this.buffer().writeBytes(data.buffer(), data.buffer().readerIndex(), data.remaining());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The decoded data is a slice of the original packet, meaning no data is
+	 * copied.
+	 */
+	@Override
+	public void decode() {
+		this.streamId = this.readUnsignedShort();
+		this.state = this.readUnsignedByte();
+		this.data = this.remaining() > 0 ? new Packet(this.buffer().readSlice(this.remaining())) : new Packet();
+	}
+
+}
@@ -33,6 +33,7 @@ import java.util.ArrayList;
 
 import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNetPacket;
+import com.whirvis.jraknet.protocol.SerialNumber;
 
 /**
  * An <code>ACK</code> packet.
@@ -57,6 +58,47 @@ public class AcknowledgedPacket extends RakNetPacket {
 	 */
 	public static final int UNRANGED = 0x01;
 
+	/**
+	 * The minimum size of an <code>ACK</code> packet.
+	 */
+	public static final int MINIMUM_SIZE = size((Record[]) null);
+
+	/**
+	 * Calculates the size of the specified record if it had been encoded.
+	 * 
+	 * @param record
+	 *            the record.
+	 * @return the size of the record if it had been encoded.
+	 * @throws NullPointerException
+	 *             if the <code>record</code> is <code>null</code>.
+	 */
+	public static int size(Record record) throws NullPointerException {
+		if (record == null) {
+			throw new NullPointerException("Record cannot be null");
+		}
+		return record.isRanged() ? 7 : 4;
+	}
+
+	/**
+	 * Calculates the size of the packet if it had been encoded.
+	 * <p>
+	 * The records are expected to already be condensed, as they will not be
+	 * condensed here.
+	 * 
+	 * @param records
+	 *            the records inside the packet.
+	 * @return the size of the packet if it had been encoded.
+	 */
+	public static int size(Record... records) {
+		int size = 3;
+		if (records != null) {
+			for (Record record : records) {
+				size += size(record);
+			}
+		}
+		return size;
+	}
+
 	/**
 	 * The records containing the sequence IDs.
 	 */
@@ -130,10 +172,11 @@ public class AcknowledgedPacket extends RakNetPacket {
 	/**
 	 * {@inheritDoc}
 	 * <p>
-	 * After decoding is finished, all records will be expanded. This means that
-	 * all ranged records will be converted to single records, making it easier
-	 * to cycle through them. The <code>records</code> field will be updated
-	 * with these expanded records.
+	 * The decoded records are left as they were sent, meaning ranged records
+	 * are <i>not</i> expanded into the sequence IDs they contain. This keeps a
+	 * single ranged record from allocating memory for every sequence ID in its
+	 * range. The only exception are ranged records which wrap back around
+	 * past {@value SerialNumber#MAX_VALUE}, which are split into two records.
 	 */
 	@Override
 	public void decode() {
@@ -142,12 +185,19 @@ public class AcknowledgedPacket extends RakNetPacket {
 		for (int i = 0; i < size; i++) {
 			boolean ranged = this.readUnsignedByte() == RANGED;
 			if (ranged == false) {
-				records.add(new Record(this.readTriadLE()));
+				records.add(new Record(this.readUnsignedTriadLE()));
 			} else {
-				records.add(new Record(this.readTriadLE(), this.readTriadLE()));
+				int index = this.readUnsignedTriadLE();
+				int endIndex = this.readUnsignedTriadLE();
+				if (endIndex >= index) {
+					records.add(new Record(index, endIndex));
+				} else {
+					records.add(new Record(index, SerialNumber.MAX_VALUE));
+					records.add(new Record(0, endIndex));
+				}
 			}
 		}
-		this.records = Record.simplify(records);
+		this.records = records.toArray(new Record[records.size()]);
 	}
 
 }
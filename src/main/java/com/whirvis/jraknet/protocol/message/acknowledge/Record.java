@@ -53,37 +53,43 @@ public final class Record {
 
 	/**
 	 * Returns the sequence IDs contained within the specified records.
+	 * <p>
+	 * This allocates an array with every sequence ID contained within the
+	 * records, which can be very large for ranged records. Where possible, the
+	 * ranges of the records should be used directly instead.
 	 * 
 	 * @param records
 	 *            the records to get the sequence IDs from.
-	 * @return the sequence IDs contained within the specified records.
+	 * @return the sequence IDs contained within the specified records, sorted
+	 *         in ascending order without duplicates.
 	 */
 	public static int[] getSequenceIds(Record... records) {
-		// Get sequence IDs from records
-		ArrayList<Integer> sequenceIdsList = new ArrayList<Integer>();
-		for (Record record : records) {
-			for (int recordId : record.getSequenceIds()) {
-				if (!sequenceIdsList.contains(recordId)) {
-					sequenceIdsList.add(recordId);
-				}
-			}
+		Record[] condensed = condense(records);
+		int size = 0;
+		for (Record record : condensed) {
+			size += record.size();
 		}
-
-		// Convert boxed values to sorted native array
-		int[] sequenceIds = new int[sequenceIdsList.size()];
-		for (int i = 0; i < sequenceIds.length; i++) {
-			sequenceIds[i] = sequenceIdsList.get(i);
+		int[] sequenceIds = new int[size];
+		int i = 0;
+		for (Record record : condensed) {
+			for (int sequenceId = record.getIndex(); sequenceId <= record.getLastIndex(); sequenceId++) {
+				sequenceIds[i++] = sequenceId;
+			}
 		}
-		Arrays.sort(sequenceIds);
 		return sequenceIds;
 	}
 
 	/**
 	 * Returns the sequence IDs contained within the specified records.
+	 * <p>
+	 * This allocates an array with every sequence ID contained within the
+	 * records, which can be very large for ranged records. Where possible, the
+	 * ranges of the records should be used directly instead.
 	 * 
 	 * @param records
 	 *            the records to get the sequence IDs from.
-	 * @return the sequence IDs contained within the specified records.
+	 * @return the sequence IDs contained within the specified records, sorted
+	 *         in ascending order without duplicates.
 	 */
 	public static int[] getSequenceIds(List<Record> records) {
 		return getSequenceIds(records.toArray(new Record[records.size()]));
@@ -112,6 +118,10 @@ public final class Record {
 	 * Simplifies the specified records into a <code>Record[]</code> with all
 	 * sequence IDs within the records having their own dedicated record to make
 	 * handling them easier.
+	 * <p>
+	 * This allocates a record for every sequence ID contained within the
+	 * records, which can be very large for ranged records. Where possible, the
+	 * ranges of the records should be used directly instead.
 	 * 
 	 * @param records
 	 *            the records to simplify.
@@ -125,6 +135,10 @@ public final class Record {
 	 * Simplifies the specified records into a <code>Record[]</code> with all
 	 * sequence IDs within the records having their own dedicated record to make
 	 * handling them easier.
+	 * <p>
+	 * This allocates a record for every sequence ID contained within the
+	 * records, which can be very large for ranged records. Where possible, the
+	 * ranges of the records should be used directly instead.
 	 * 
 	 * @param records
 	 *            the records to simplify.
@@ -137,34 +151,40 @@ public final class Record {
 	/**
 	 * Condenses the specified records into a <code>Record[]</code> with all
 	 * ranges of sequence IDs being in ranged records to save memory.
+	 * <p>
+	 * Records which overlap or are next to each other are merged together,
+	 * without ever expanding them into the sequence IDs they contain.
 	 * 
 	 * @param records
 	 *            the records to condense.
-	 * @return the condensed records.
+	 * @return the condensed records, sorted in ascending order.
 	 */
 	public static Record[] condense(Record... records) {
+		if (records.length <= 0) {
+			return new Record[0];
+		}
+
 		/*
-		 * Get sequence IDs and sort them in ascending order. This is crucial in
-		 * order for condensing to occur.
+		 * Sort the records by their starting index in ascending order. This is
+		 * crucial in order for condensing to occur in a single pass.
 		 */
-		int[] sequenceIds = Record.getSequenceIds(records);
-		Arrays.sort(sequenceIds);
+		Record[] sorted = Arrays.copyOf(records, records.length);
+		Arrays.sort(sorted, (a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
 
 		// Condense records
 		ArrayList<Record> condensed = new ArrayList<Record>();
-		for (int i = 0; i < sequenceIds.length; i++) {
-			int startIndex = sequenceIds[i];
-			int endIndex = startIndex;
-			if (i + 1 < sequenceIds.length) {
-				while (endIndex + 1 == sequenceIds[i + 1]) {
-					endIndex = sequenceIds[++i]; // This value is sequential
-					if (i + 1 >= sequenceIds.length) {
-						break;
-					}
-				}
+		int startIndex = sorted[0].getIndex();
+		int endIndex = sorted[0].getLastIndex();
+		for (int i = 1; i < sorted.length; i++) {
+			if (sorted[i].getIndex() <= endIndex + 1) {
+				endIndex = Math.max(endIndex, sorted[i].getLastIndex());
+			} else {
+				condensed.add(new Record(startIndex, endIndex));
+				startIndex = sorted[i].getIndex();
+				endIndex = sorted[i].getLastIndex();
 			}
-			condensed.add(new Record(startIndex, endIndex == startIndex ? -1 : endIndex));
 		}
+		condensed.add(new Record(startIndex, endIndex));
 		return condensed.toArray(new Record[condensed.size()]);
 	}
 
@@ -174,7 +194,7 @@ public final class Record {
 	 * 
 	 * @param records
 	 *            the records to condense.
-	 * @return the condensed records.
+	 * @return the condensed records, sorted in ascending order.
 	 */
 	public static Record[] condense(List<Record> records) {
 		return condense(records.toArray(new Record[records.size()]));
@@ -183,22 +203,38 @@ public final class Record {
 	/**
 	 * Condenses the specified sequence IDs into a <code>Record[]</code> with
 	 * all ranges of sequence IDs being in ranged records to save memory.
+	 * <p>
+	 * This is done in a single pass over the sequence IDs. If they are not
+	 * already sorted in ascending order, a sorted copy of them is used.
 	 * 
 	 * @param sequenceIds
 	 *            the sequence IDs to condense.
-	 * @return the condensed records.
+	 * @return the condensed records, sorted in ascending order.
 	 */
 	public static Record[] condense(int... sequenceIds) {
-		Record[] records = new Record[sequenceIds.length];
-		for (int i = 0; i < records.length; i++) {
-			records[i] = new Record(sequenceIds[i]);
+		for (int i = 1; i < sequenceIds.length; i++) {
+			if (sequenceIds[i] < sequenceIds[i - 1]) {
+				sequenceIds = Arrays.copyOf(sequenceIds, sequenceIds.length);
+				Arrays.sort(sequenceIds);
+				break;
+			}
 		}
-		return condense(records);
+
+		// Condense sequence IDs
+		ArrayList<Record> condensed = new ArrayList<Record>();
+		for (int i = 0; i < sequenceIds.length; i++) {
+			int startIndex = sequenceIds[i];
+			int endIndex = startIndex;
+			while (i + 1 < sequenceIds.length && sequenceIds[i + 1] <= endIndex + 1) {
+				endIndex = sequenceIds[++i]; // This value is sequential
+			}
+			condensed.add(new Record(startIndex, endIndex));
+		}
+		return condensed.toArray(new Record[condensed.size()]);
 	}
 
 	private int index;
 	private int endIndex;
-	private int[] sequenceIds;
 
 	/**
 	 * Creates a ranged record.
@@ -206,7 +242,9 @@ public final class Record {
 	 * @param index
 	 *            the starting index.
 	 * @param endIndex
-	 *            the ending index.
+	 *            the ending index, a value of {@value #NOT_RANGED} or lower or
+	 *            to the value of the index itself indicates that the record is
+	 *            not ranged.
 	 * @throws IllegalArgumentException
 	 *             if the <code>index</code> is negative.
 	 */
@@ -215,8 +253,7 @@ public final class Record {
 			throw new IllegalArgumentException("Index cannot be negative");
 		}
 		this.index = index;
-		this.endIndex = endIndex;
-		this.updateSequenceIds();
+		this.endIndex = endIndex <= index ? NOT_RANGED : endIndex;
 	}
 
 	/**
@@ -232,21 +269,6 @@ public final class Record {
 		this(id, NOT_RANGED);
 	}
 
-	/**
-	 * Updates the sequence IDs within the record.
-	 */
-	private void updateSequenceIds() {
-		if (!this.isRanged()) {
-			this.sequenceIds = new int[] { this.getIndex() };
-		} else {
-			int[] ranged = new int[this.getEndIndex() - this.getIndex() + 1];
-			for (int i = 0; i < ranged.length; i++) {
-				ranged[i] = i + this.getIndex();
-			}
-			this.sequenceIds = ranged;
-		}
-	}
-
 	/**
 	 * Returns the starting index of the record.
 	 * 
@@ -269,7 +291,9 @@ public final class Record {
 			throw new IllegalArgumentException("Index cannot be negative");
 		}
 		this.index = index;
-		this.updateSequenceIds();
+		if (endIndex <= index) {
+			this.endIndex = NOT_RANGED;
+		}
 	}
 
 	/**
@@ -296,7 +320,38 @@ public final class Record {
 			endIndex = NOT_RANGED;
 		}
 		this.endIndex = endIndex;
-		this.updateSequenceIds();
+	}
+
+	/**
+	 * Returns the last sequence ID contained within the record.
+	 * 
+	 * @return the last sequence ID contained within the record. This is the
+	 *         ending index if the record is ranged, and the starting index
+	 *         otherwise.
+	 */
+	public int getLastIndex() {
+		return this.isRanged() ? this.endIndex : this.index;
+	}
+
+	/**
+	 * Returns the amount of sequence IDs contained within the record.
+	 * 
+	 * @return the amount of sequence IDs contained within the record.
+	 */
+	public int size() {
+		return this.getLastIndex() - this.index + 1;
+	}
+
+	/**
+	 * Returns whether or not the record contains the specified sequence ID.
+	 * 
+	 * @param sequenceId
+	 *            the sequence ID.
+	 * @return <code>true</code> if the record contains the
+	 *         <code>sequenceId</code>, <code>false</code> otherwise.
+	 */
+	public boolean contains(int sequenceId) {
+		return sequenceId >= this.index && sequenceId <= this.getLastIndex();
 	}
 
 	/**
@@ -329,12 +384,21 @@ public final class Record {
 
 	/**
 	 * Returns the sequence IDs contained within this record.
+	 * <p>
+	 * The sequence IDs are not stored by the record, and are instead
+	 * allocated every time this method is called. For ranged records, it is
+	 * much cheaper to use {@link #getIndex()} and {@link #getLastIndex()}
+	 * directly.
 	 * 
 	 * @return the sequence IDs contained within this record.
 	 * @see #getSequenceId()
 	 */
 	public int[] getSequenceIds() {
-		return this.sequenceIds;
+		int[] sequenceIds = new int[this.size()];
+		for (int i = 0; i < sequenceIds.length; i++) {
+			sequenceIds[i] = index + i;
+		}
+		return sequenceIds;
 	}
 
 	@Override
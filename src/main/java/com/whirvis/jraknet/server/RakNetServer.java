@@ -33,11 +33,11 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -53,6 +53,8 @@ import com.whirvis.jraknet.ThreadedListener;
 import com.whirvis.jraknet.client.RakNetClient;
 import com.whirvis.jraknet.identifier.Identifier;
 import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.SplitBudget;
+import com.whirvis.jraknet.protocol.Priority;
 import com.whirvis.jraknet.protocol.Reliability;
 import com.whirvis.jraknet.protocol.connection.ConnectionBanned;
 import com.whirvis.jraknet.protocol.connection.IncompatibleProtocolVersion;
@@ -63,6 +65,8 @@ import com.whirvis.jraknet.protocol.connection.OpenConnectionResponseTwo;
 import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
 import com.whirvis.jraknet.protocol.status.UnconnectedPing;
 import com.whirvis.jraknet.protocol.status.UnconnectedPong;
+import com.whirvis.jraknet.transport.DatagramBatch;
+import com.whirvis.jraknet.transport.Transport;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
@@ -70,9 +74,6 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.DatagramPacket;
-import io.netty.channel.socket.nio.NioDatagramChannel;
 
 /**
  * Used to create servers using the RakNet protocol.
@@ -98,6 +99,17 @@ public class RakNetServer implements RakNetServerListener {
 	 */
 	public static final int INFINITE_CONNECTIONS = -1;
 
+	/**
+	 * The default amount of memory in bytes that can be used by the split
+	 * packets of every client waiting to be reassembled.
+	 */
+	public static final long SPLIT_BUDGET = 67108864L;
+
+	/**
+	 * The default amount of sockets the server binds to its address.
+	 */
+	public static final int DEFAULT_SOCKET_COUNT = 1;
+
 	private final InetSocketAddress bindingAddress;
 	private final long guid;
 	private final Logger logger;
@@ -106,17 +118,21 @@ public class RakNetServer implements RakNetServerListener {
 	private final int maximumTransferUnit;
 	private int maxConnections;
 	private boolean broadcastingEnabled;
+	private volatile boolean streamsEnabled;
 	private Identifier identifier;
 	private int eventThreadCount;
 	private final ConcurrentLinkedQueue<RakNetServerListener> listeners;
 	private final ConcurrentHashMap<InetSocketAddress, RakNetClientPeer> clients;
 	private final ConcurrentLinkedQueue<InetAddress> banned;
+	private final SplitBudget splitBudget;
+	private int socketCount;
+	private int sendBufferSize;
+	private int receiveBufferSize;
 	private Bootstrap bootstrap;
 	private EventLoopGroup group;
 	private RakNetServerHandler handler;
-	private Channel channel;
+	private Channel[] channels;
 	private InetSocketAddress bindAddress;
-	private Thread peerThread;
 	private volatile boolean running;
 
 	/**
@@ -182,6 +198,10 @@ public class RakNetServer implements RakNetServerListener {
 		this.listeners = new ConcurrentLinkedQueue<RakNetServerListener>();
 		this.clients = new ConcurrentHashMap<InetSocketAddress, RakNetClientPeer>();
 		this.banned = new ConcurrentLinkedQueue<InetAddress>();
+		this.splitBudget = new SplitBudget(SPLIT_BUDGET);
+		this.socketCount = DEFAULT_SOCKET_COUNT;
+		this.sendBufferSize = RakNet.SYSTEM_BUFFER_SIZE;
+		this.receiveBufferSize = RakNet.SYSTEM_BUFFER_SIZE;
 		if (this.getClass() != RakNetServer.class && RakNetServerListener.class.isAssignableFrom(this.getClass())) {
 			this.addSelfListener();
 		}
@@ -791,6 +811,154 @@ public class RakNetServer implements RakNetServerListener {
 		}
 	}
 
+	/**
+	 * Returns the budget limiting the memory used by the split packets of
+	 * every client waiting to be reassembled.
+	 * <p>
+	 * By default, the limit of the budget is set to {@value #SPLIT_BUDGET}.
+	 * The limit can be changed with the {@link SplitBudget#setLimit(long)}
+	 * method. Each client is also limited on its own, which can be changed
+	 * with the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#setSplitMemoryLimit(long)
+	 * RakNetPeer.setSplitMemoryLimit(long)} method. Clients are only
+	 * disconnected for going over their own limit, while using up the budget
+	 * makes the clients resend their chunks later on instead.
+	 * 
+	 * @return the budget limiting the memory used by the split packets of
+	 *         every client waiting to be reassembled.
+	 */
+	public final SplitBudget getSplitBudget() {
+		return this.splitBudget;
+	}
+
+	/**
+	 * Returns the amount of sockets the server binds to its address.
+	 * 
+	 * @return the amount of sockets the server binds to its address.
+	 */
+	public final int getSocketCount() {
+		return this.socketCount;
+	}
+
+	/**
+	 * Sets the amount of sockets the server binds to its address.
+	 * <p>
+	 * When more than one socket is used, every socket is bound to the same
+	 * address with <code>SO_REUSEPORT</code> and is serviced by an event loop
+	 * of its own. The kernel spreads the traffic over the sockets by hashing
+	 * the address of the sender, which keeps every client on the same socket.
+	 * Each client is owned by the event loop of the socket that receives its
+	 * traffic, allowing for packets to be handled on more than one core.
+	 * <p>
+	 * This requires a {@link com.whirvis.jraknet.transport.Transport transport}
+	 * which supports <code>SO_REUSEPORT</code>, such as the native epoll
+	 * transport which is only available on Linux. If the transport does not
+	 * support it, the server falls back to binding a single socket. The amount
+	 * of sockets only takes effect the next time the server is started.
+	 * 
+	 * @param socketCount
+	 *            the amount of sockets to bind.
+	 * @throws IllegalArgumentException
+	 *             if the <code>socketCount</code> is less than <code>1</code>.
+	 */
+	public final void setSocketCount(int socketCount) throws IllegalArgumentException {
+		if (socketCount < 1) {
+			throw new IllegalArgumentException("Socket count must be at least 1");
+		}
+		this.socketCount = socketCount;
+		logger.debug("Set socket count to " + socketCount);
+	}
+
+	/**
+	 * Returns the size of the send buffer of the sockets bound by the server.
+	 * 
+	 * @return the size of the send buffer of the sockets bound by the server,
+	 *         {@value RakNet#SYSTEM_BUFFER_SIZE} if it is left to the
+	 *         operating system.
+	 */
+	public final int getSendBufferSize() {
+		return this.sendBufferSize;
+	}
+
+	/**
+	 * Sets the size of the send buffer of the sockets bound by the server.
+	 * <p>
+	 * By default, the size of the send buffer is left to the operating
+	 * system. A buffer which only fits a few datagrams causes most of the
+	 * datagrams sent in a burst to be dropped, so it should only be lowered
+	 * with care. The size only takes effect the next time the server is
+	 * started.
+	 * 
+	 * @param sendBufferSize
+	 *            the size of the send buffer in bytes,
+	 *            {@value RakNet#SYSTEM_BUFFER_SIZE} to leave it to the
+	 *            operating system.
+	 * @throws IllegalArgumentException
+	 *             if the <code>sendBufferSize</code> is negative.
+	 */
+	public final void setSendBufferSize(int sendBufferSize) throws IllegalArgumentException {
+		if (sendBufferSize < 0) {
+			throw new IllegalArgumentException("Send buffer size cannot be negative");
+		}
+		this.sendBufferSize = sendBufferSize;
+		logger.debug("Set send buffer size to " + sendBufferSize);
+	}
+
+	/**
+	 * Returns the size of the receive buffer of the sockets bound by the
+	 * server.
+	 * 
+	 * @return the size of the receive buffer of the sockets bound by the
+	 *         server, {@value RakNet#SYSTEM_BUFFER_SIZE} if it is left to the
+	 *         operating system.
+	 */
+	public final int getReceiveBufferSize() {
+		return this.receiveBufferSize;
+	}
+
+	/**
+	 * Sets the size of the receive buffer of the sockets bound by the server.
+	 * <p>
+	 * By default, the size of the receive buffer is left to the operating
+	 * system. A buffer which only fits a few datagrams causes most of the
+	 * datagrams that arrive in a burst to be dropped, so it should only be
+	 * lowered with care. The size only takes effect the next time the server
+	 * is started.
+	 * 
+	 * @param receiveBufferSize
+	 *            the size of the receive buffer in bytes,
+	 *            {@value RakNet#SYSTEM_BUFFER_SIZE} to leave it to the
+	 *            operating system.
+	 * @throws IllegalArgumentException
+	 *             if the <code>receiveBufferSize</code> is negative.
+	 */
+	public final void setReceiveBufferSize(int receiveBufferSize) throws IllegalArgumentException {
+		if (receiveBufferSize < 0) {
+			throw new IllegalArgumentException("Receive buffer size cannot be negative");
+		}
+		this.receiveBufferSize = receiveBufferSize;
+		logger.debug("Set receive buffer size to " + receiveBufferSize);
+	}
+
+	/**
+	 * Returns the channel of the socket serviced by the current thread.
+	 * <p>
+	 * Replies to a client are sent over the socket its traffic is received
+	 * by. If the current thread is not the event loop of any of the sockets,
+	 * the first socket is used.
+	 * 
+	 * @return the channel of the socket serviced by the current thread.
+	 */
+	private Channel getChannel() {
+		Channel[] channels = this.channels;
+		for (Channel channel : channels) {
+			if (channel.eventLoop().inEventLoop()) {
+				return channel;
+			}
+		}
+		return channels[0];
+	}
+
 	/**
 	 * Enables/disables server broadcasting.
 	 * 
@@ -816,6 +984,38 @@ public class RakNetServer implements RakNetServerListener {
 		return this.broadcastingEnabled;
 	}
 
+	/**
+	 * Enables/disables the receiving of streams from clients.
+	 * <p>
+	 * This only affects clients that connect afterwards. Streams can also be
+	 * enabled for a client specifically via the
+	 * {@link com.whirvis.jraknet.peer.RakNetPeer#enableStreams(boolean)
+	 * RakNetPeer.enableStreams(boolean)} method. By default, streams are
+	 * disabled.
+	 * 
+	 * @param enabled
+	 *            <code>true</code> to enable streams, <code>false</code> to
+	 *            disable them.
+	 */
+	public final void setStreamsEnabled(boolean enabled) {
+		boolean wasEnabled = this.streamsEnabled;
+		this.streamsEnabled = enabled;
+		if (wasEnabled != enabled) {
+			logger.info((enabled ? "Enabled" : "Disabled") + " streams");
+		}
+	}
+
+	/**
+	 * Returns whether or not the receiving of streams from clients is
+	 * enabled.
+	 * 
+	 * @return <code>true</code> if streams are enabled, <code>false</code>
+	 *         otherwise.
+	 */
+	public final boolean isStreamsEnabled() {
+		return this.streamsEnabled;
+	}
+
 	/**
 	 * Returns the identifier sent back to clients who ping the server.
 	 * 
@@ -1228,12 +1428,14 @@ public class RakNetServer implements RakNetServerListener {
 	}
 
 	/**
-	 * Sends a message to the specified peer.
+	 * Sends a message to the specified peer with the specified priority.
 	 * 
 	 * @param guid
 	 *            the globally unique ID of the peer to send the packet to.
 	 * @param reliability
 	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
 	 * @param channel
 	 *            the channel to send the packet on.
 	 * @param packet
@@ -1246,22 +1448,260 @@ public class RakNetServer implements RakNetServerListener {
 	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
 	 *         type.
 	 * @throws NullPointerException
-	 *             if the <code>reliability</code> or <code>packet</code> are
-	 *             <code>null</code>.
+	 *             if the <code>reliability</code>, <code>priority</code>, or
+	 *             <code>packet</code> are <code>null</code>.
 	 * @throws InvalidChannelException
 	 *             if the channel is higher than or equal to
 	 *             {@value RakNet#CHANNEL_COUNT}.
 	 */
-	public final EncapsulatedPacket sendMessage(long guid, Reliability reliability, int channel, Packet packet)
-			throws NullPointerException, IllegalArgumentException {
+	public final EncapsulatedPacket sendMessage(long guid, Reliability reliability, Priority priority, int channel,
+			Packet packet) throws NullPointerException, IllegalArgumentException {
 		if (reliability == null) {
 			throw new NullPointerException("Reliability cannot be null");
+		} else if (priority == null) {
+			throw new NullPointerException("Priority cannot be null");
 		} else if (packet == null) {
 			throw new NullPointerException("Packet cannot be null");
 		} else if (!this.hasClient(guid)) {
 			throw new IllegalArgumentException("No client with the specified GUID exists");
 		}
-		return this.getClient(guid).sendMessage(reliability, channel, packet);
+		return this.getClient(guid).sendMessage(reliability, priority, channel, packet);
+	}
+
+	/**
+	 * Sends a message to the specified peer with the specified priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>reliability</code>,
+	 *             <code>priority</code>, or <code>packet</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, Reliability reliability, Priority priority,
+			int channel, Packet packet)
+			throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), reliability, priority, channel, packet);
+	}
+
+	/**
+	 * Sends a message to the specified peer with the specified priority that
+	 * is discarded if it has not been sent within the specified amount of
+	 * time.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @param timeToLive
+	 *            how long the packet can wait to be sent in milliseconds.
+	 * @return the generated encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code>, <code>priority</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if no client with the <code>guid</code> exists, if the
+	 *             <code>reliability</code> is not
+	 *             {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 *             {@link Reliability#UNRELIABLE_SEQUENCED
+	 *             UNRELIABLE_SEQUENCED}, or if the <code>timeToLive</code> is
+	 *             less than or equal to <code>0</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @see RakNetClientPeer#sendMessage(Reliability, Priority, int, Packet,
+	 *      long)
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, Reliability reliability, Priority priority, int channel,
+			Packet packet, long timeToLive)
+			throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		if (!this.hasClient(guid)) {
+			throw new IllegalArgumentException("No client with the specified GUID exists");
+		}
+		return this.getClient(guid).sendMessage(reliability, priority, channel, packet, timeToLive);
+	}
+
+	/**
+	 * Sends a message to the specified peer with the specified priority that
+	 * is discarded if it has not been sent within the specified amount of
+	 * time.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @param timeToLive
+	 *            how long the packet can wait to be sent in milliseconds.
+	 * @return the generated encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>reliability</code>,
+	 *             <code>priority</code>, or <code>packet</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server, if the
+	 *             <code>reliability</code> is not
+	 *             {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 *             {@link Reliability#UNRELIABLE_SEQUENCED
+	 *             UNRELIABLE_SEQUENCED}, or if the <code>timeToLive</code> is
+	 *             less than or equal to <code>0</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @see RakNetClientPeer#sendMessage(Reliability, Priority, int, Packet,
+	 *      long)
+	 */
+	public final EncapsulatedPacket sendMessage(RakNetClientPeer peer, Reliability reliability, Priority priority,
+			int channel, Packet packet, long timeToLive)
+			throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendMessage(this.getGuid(peer), reliability, priority, channel, packet, timeToLive);
+	}
+
+	/**
+	 * Sends a replaceable message to the specified peer with the specified
+	 * priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param key
+	 *            the key of the message, such as the ID of the entity whose
+	 *            state is being sent.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>key</code>, <code>reliability</code>,
+	 *             <code>priority</code>, or <code>packet</code> are
+	 *             <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if no client with the <code>guid</code> exists, if the
+	 *             <code>reliability</code> is not
+	 *             {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 *             {@link Reliability#UNRELIABLE_SEQUENCED
+	 *             UNRELIABLE_SEQUENCED}, or if the <code>packet</code> is too
+	 *             big to be sent without being split.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @see RakNetClientPeer#sendReplaceableMessage(Object, Reliability,
+	 *      Priority, int, Packet)
+	 */
+	public final EncapsulatedPacket sendReplaceableMessage(long guid, Object key, Reliability reliability,
+			Priority priority, int channel, Packet packet)
+			throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		if (!this.hasClient(guid)) {
+			throw new IllegalArgumentException("No client with the specified GUID exists");
+		}
+		return this.getClient(guid).sendReplaceableMessage(key, reliability, priority, channel, packet);
+	}
+
+	/**
+	 * Sends a replaceable message to the specified peer with the specified
+	 * priority.
+	 * 
+	 * @param peer
+	 *            the peer to send the packet to.
+	 * @param key
+	 *            the key of the message, such as the ID of the entity whose
+	 *            state is being sent.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param priority
+	 *            the priority of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet.
+	 * @throws NullPointerException
+	 *             if the <code>peer</code>, <code>key</code>,
+	 *             <code>reliability</code>, <code>priority</code>, or
+	 *             <code>packet</code> are <code>null</code>.
+	 * @throws IllegalArgumentException
+	 *             if the <code>peer</code> is not of the server, if the
+	 *             <code>reliability</code> is not
+	 *             {@link Reliability#UNRELIABLE UNRELIABLE} or
+	 *             {@link Reliability#UNRELIABLE_SEQUENCED
+	 *             UNRELIABLE_SEQUENCED}, or if the <code>packet</code> is too
+	 *             big to be sent without being split.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 * @see RakNetClientPeer#sendReplaceableMessage(Object, Reliability,
+	 *      Priority, int, Packet)
+	 */
+	public final EncapsulatedPacket sendReplaceableMessage(RakNetClientPeer peer, Object key,
+			Reliability reliability, Priority priority, int channel, Packet packet)
+			throws NullPointerException, IllegalArgumentException, InvalidChannelException {
+		return this.sendReplaceableMessage(this.getGuid(peer), key, reliability, priority, channel, packet);
+	}
+
+	/**
+	 * Sends a message to the specified peer with the {@link Priority#MEDIUM
+	 * MEDIUM} priority.
+	 * 
+	 * @param guid
+	 *            the globally unique ID of the peer to send the packet to.
+	 * @param reliability
+	 *            the reliability of the packet.
+	 * @param channel
+	 *            the channel to send the packet on.
+	 * @param packet
+	 *            the packet to send.
+	 * @return the generated encapsulated packet, <code>null</code> if no packet
+	 *         was sent due to the non existence of the peer with the
+	 *         <code>guid</code>. This is normally not important, however it can
+	 *         be used for packet acknowledged and not acknowledged events if
+	 *         the reliability is of the
+	 *         {@link Reliability#UNRELIABLE_WITH_ACK_RECEIPT WITH_ACK_RECEIPT}
+	 *         type.
+	 * @throws NullPointerException
+	 *             if the <code>reliability</code> or <code>packet</code> are
+	 *             <code>null</code>.
+	 * @throws InvalidChannelException
+	 *             if the channel is higher than or equal to
+	 *             {@value RakNet#CHANNEL_COUNT}.
+	 */
+	public final EncapsulatedPacket sendMessage(long guid, Reliability reliability, int channel, Packet packet)
+			throws NullPointerException, IllegalArgumentException {
+		return this.sendMessage(guid, reliability, Priority.MEDIUM, channel, packet);
 	}
 
 	/**
@@ -2520,7 +2960,34 @@ public class RakNetServer implements RakNetServerListener {
 		} else if (packet == null) {
 			throw new NullPointerException("Packet cannot be null");
 		} else if (clients.containsKey(sender)) {
-			clients.get(sender).handleInternal(packet);
+			RakNetClientPeer peer = clients.get(sender);
+			if (!peer.getEventLoop().inEventLoop()) {
+				/*
+				 * The traffic of a client is always received by the same
+				 * socket, unless the sockets of the server have changed. If
+				 * it is received by another socket anyway, it is handed off
+				 * to the event loop that owns the client.
+				 */
+				RakNetPacket handoff = new RakNetPacket(packet.buffer().retainedDuplicate().readerIndex(0));
+				try {
+					peer.getEventLoop().execute(() -> {
+						try {
+							this.handleMessage(sender, handoff);
+						} catch (Throwable cause) {
+							this.handleHandlerException(sender, cause);
+						} finally {
+							handoff.release();
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					handoff.release();
+				}
+				return;
+			}
+			peer.handleInternal(packet);
+			if (peer.getPacketsReceivedThisSecond() >= RakNet.getMaxPacketsPerSecond()) {
+				this.blockAddress(peer.getInetAddress(), "Too many packets", RakNet.MAX_PACKETS_PER_SECOND_BLOCK);
+			}
 		} else if (packet.getId() == RakNetPacket.ID_UNCONNECTED_PING
 				|| packet.getId() == RakNetPacket.ID_UNCONNECTED_PING_OPEN_CONNECTIONS) {
 			UnconnectedPing ping = new UnconnectedPing(packet);
@@ -2588,10 +3055,11 @@ public class RakNetServer implements RakNetServerListener {
 					if (!connectionResponseTwo.failed()) {
 						this.callEvent(
 								listener -> listener.onConnect(this, sender, connectionRequestTwo.connectionType));
-						clients.put(sender,
-								new RakNetClientPeer(this, connectionRequestTwo.connectionType,
-										connectionRequestTwo.clientGuid, connectionResponseTwo.maximumTransferUnit,
-										channel, sender));
+						RakNetClientPeer peer = new RakNetClientPeer(this, connectionRequestTwo.connectionType,
+								connectionRequestTwo.clientGuid, connectionResponseTwo.maximumTransferUnit,
+								this.getChannel(), sender);
+						peer.enableStreams(streamsEnabled);
+						clients.put(sender, peer);
 						this.sendNettyMessage(connectionResponseTwo, sender);
 					}
 				} else {
@@ -2659,7 +3127,7 @@ public class RakNetServer implements RakNetServerListener {
 		} else if (address.getAddress() == null) {
 			throw new NullPointerException("IP address cannot be null");
 		}
-		channel.writeAndFlush(new DatagramPacket(buf, address));
+		DatagramBatch.write(this.getChannel(), buf, address);
 		logger.trace("Sent netty message with size of " + buf.capacity() + " bytes (" + (buf.capacity() * 8)
 				+ " bits) to " + address);
 	}
@@ -2734,79 +3202,46 @@ public class RakNetServer implements RakNetServerListener {
 			logger.warn("Server has no listeners");
 		}
 		try {
+			int sockets = socketCount;
+			Transport transport = RakNet.getTransport();
+			boolean reusePort = sockets > 1 && transport.isReusePortSupported();
+			if (sockets > 1 && reusePort == false) {
+				logger.warn("Unable to bind " + sockets + " sockets as the " + transport.getName()
+						+ " transport does not support SO_REUSEPORT, binding a single socket instead");
+				sockets = 1;
+			}
 			this.bootstrap = new Bootstrap();
-			this.group = new NioEventLoopGroup();
+			this.group = transport.createEventLoopGroup(reusePort == true ? sockets : 0);
 			this.handler = new RakNetServerHandler(this);
 			bootstrap.handler(handler);
 
-			// Create bootstrap and bind channel
-			bootstrap.channel(NioDatagramChannel.class).group(group);
+			// Create bootstrap and bind channels
+			bootstrap.channel(transport.getDatagramChannelClass()).group(group);
 			bootstrap.option(ChannelOption.SO_BROADCAST, true).option(ChannelOption.SO_REUSEADDR, false)
-					.option(ChannelOption.SO_SNDBUF, maximumTransferUnit)
-					.option(ChannelOption.SO_RCVBUF, maximumTransferUnit)
 					.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maximumTransferUnit));
-			this.channel = (bindingAddress != null ? bootstrap.bind(bindingAddress) : bootstrap.bind(0)).sync()
+			if (sendBufferSize != RakNet.SYSTEM_BUFFER_SIZE) {
+				bootstrap.option(ChannelOption.SO_SNDBUF, sendBufferSize);
+			}
+			if (receiveBufferSize != RakNet.SYSTEM_BUFFER_SIZE) {
+				bootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+			}
+			if (reusePort == true) {
+				transport.enableReusePort(bootstrap);
+			}
+			Channel[] channels = new Channel[sockets];
+			channels[0] = (bindingAddress != null ? bootstrap.bind(bindingAddress) : bootstrap.bind(0)).sync()
 					.channel();
-			this.bindAddress = (InetSocketAddress) channel.localAddress();
+			this.bindAddress = (InetSocketAddress) channels[0].localAddress();
+			for (int i = 1; i < channels.length; i++) {
+				channels[i] = bootstrap.bind(bindAddress).sync().channel();
+			}
+			for (Channel channel : channels) {
+				DatagramBatch.install(channel, transport);
+			}
+			this.channels = channels;
 			this.running = true;
-			logger.debug("Created and bound bootstrap");
-
-			// Create and start peer update thread
-			RakNetServer server = this;
-			this.peerThread = new Thread(
-					RakNetServer.class.getSimpleName() + "-Peer-Thread-" + Long.toHexString(guid).toUpperCase()) {
-
-				@Override
-				public void run() {
-					HashMap<RakNetClientPeer, Throwable> disconnected = new HashMap<RakNetClientPeer, Throwable>();
-					while (server.running == true && !this.isInterrupted()) {
-						try {
-							Thread.sleep(0, 1); // Lower CPU usage
-						} catch (InterruptedException e) {
-							this.interrupt(); // Interrupted during sleep
-							continue;
-						}
-						for (RakNetClientPeer peer : clients.values()) {
-							if (!peer.isDisconnected()) {
-								try {
-									peer.update();
-									if (peer.getPacketsReceivedThisSecond() >= RakNet.getMaxPacketsPerSecond()) {
-										server.blockAddress(peer.getInetAddress(), "Too many packets",
-												RakNet.MAX_PACKETS_PER_SECOND_BLOCK);
-									}
-								} catch (Throwable throwable) {
-									server.callEvent(listener -> listener.onPeerException(server, peer, throwable));
-									disconnected.put(peer, throwable);
-								}
-							}
-						}
+			logger.debug("Created bootstrap and bound " + sockets + " socket" + (sockets == 1 ? "" : "s"));
 
-						/*
-						 * Disconnect peers.
-						 * 
-						 * This must be done here as simply removing a client
-						 * from the clients map would be an incorrect way of
-						 * disconnecting a client. This means that calling the
-						 * disconnect() method is required. However, calling it
-						 * while in the loop would cause a
-						 * ConcurrentModifactionException. To get around this,
-						 * the clients that need to be disconnected are properly
-						 * disconnected after the loop is finished. This is done
-						 * simply by having them and their disconnect reason be
-						 * put in a disconnection map.
-						 */
-						if (disconnected.size() > 0) {
-							for (RakNetClientPeer peer : disconnected.keySet()) {
-								server.disconnect(peer, disconnected.get(peer));
-							}
-							disconnected.clear();
-						}
-					}
-				}
-
-			};
-			peerThread.start();
-			logger.debug("Created and started peer update thread");
 			this.callEvent(listener -> listener.onStart(this));
 		} catch (InterruptedException e) {
 			this.running = false;
@@ -2840,13 +3275,14 @@ public class RakNetServer implements RakNetServerListener {
 
 		// Stop server
 		this.running = false;
-		peerThread.interrupt();
 		logger.info("Shutdown server" + (reason != null ? " for \"" + reason + "\"" : ""));
 
 		// Shutdown networking
-		channel.close();
+		for (Channel channel : channels) {
+			channel.close();
+		}
 		group.shutdownGracefully(0L, 1000L, TimeUnit.MILLISECONDS);
-		this.channel = null;
+		this.channels = null;
 		this.handler = null;
 		this.group = null;
 		this.bootstrap = null;
@@ -39,24 +39,30 @@ import org.apache.logging.log4j.Logger;
 import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.peer.RakNetClientPeer;
 
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.concurrent.FastThreadLocal;
 
 /**
  * Used by the {@link RakNetServer} with the sole purpose of sending received
  * packets to the server so they can be handled. Any errors that occurs will
  * also be sent to the server to be dealt with.
+ * <p>
+ * A single handler is shared by every socket the server is bound to, each of
+ * which is serviced by its own event loop.
  *
  * @author "Whirvis" Trent Summerlin
  * @since JRakNet v1.0.0
  */
+@Sharable
 public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 
 	private final Logger logger;
 	private final RakNetServer server;
 	private final ConcurrentHashMap<InetAddress, BlockedAddress> blocked;
-	private InetSocketAddress causeAddress;
+	private final FastThreadLocal<InetSocketAddress> causeAddress;
 
 	/**
 	 * Creates a RakNet server Netty handler.
@@ -69,6 +75,7 @@ public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 				+ Long.toHexString(server.getGloballyUniqueId()).toUpperCase());
 		this.server = server;
 		this.blocked = new ConcurrentHashMap<InetAddress, BlockedAddress>();
+		this.causeAddress = new FastThreadLocal<InetSocketAddress>();
 	}
 
 	/**
@@ -137,7 +144,7 @@ public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 			RakNetPacket packet = new RakNetPacket(datagram);
 
 			// If an exception happens it's because of this address
-			this.causeAddress = sender;
+			causeAddress.set(sender);
 
 			// Check if address is blocked
 			if (this.isAddressBlocked(sender.getAddress())) {
@@ -163,13 +170,13 @@ public final class RakNetServerHandler extends ChannelInboundHandlerAdapter {
 			}
 
 			// No exceptions occurred, release the suspect
-			this.causeAddress = null;
+			causeAddress.remove();
 		}
 	}
 
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-		server.handleHandlerException(this.causeAddress, cause);
+		server.handleHandlerException(causeAddress.get(), cause);
 	}
 
 }
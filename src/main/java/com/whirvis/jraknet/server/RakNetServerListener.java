@@ -32,6 +32,7 @@ package com.whirvis.jraknet.server;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 
+import com.whirvis.jraknet.Packet;
 import com.whirvis.jraknet.RakNetPacket;
 import com.whirvis.jraknet.peer.RakNetClientPeer;
 import com.whirvis.jraknet.protocol.ConnectionType;
@@ -46,7 +47,7 @@ import io.netty.buffer.ByteBuf;
  * {@link RakNetServer#addListener(RakNetServerListener)} method.
  * <p>
  * Event methods are called on the same thread that called them. Typically, this
- * is the NIO event loop group that the server is using, or the server thread
+ * is the event loop group that the server is using, or the server thread
  * itself. This normally does not matter, however in some cases if a listener
  * takes too long to respond (typically
  * {@value com.whirvis.jraknet.peer.RakNetPeer#PEER_TIMEOUT} milliseconds) then
@@ -258,6 +259,54 @@ public interface RakNetServerListener {
 	public default void handleMessage(RakNetServer server, RakNetClientPeer peer, RakNetPacket packet, int channel) {
 	}
 
+	/**
+	 * Called when a chunk of a stream has been received from a client.
+	 * <p>
+	 * The chunks of a stream are always received in the order they were sent,
+	 * allowing for them to be handled as they arrive rather than having the
+	 * entire stream stored in memory first.
+	 * <p>
+	 * This is only called if streams have been enabled with the
+	 * {@link RakNetServer#setStreamsEnabled(boolean)} method, otherwise
+	 * the chunks are passed on as regular messages.
+	 * 
+	 * @param server
+	 *            the server.
+	 * @param peer
+	 *            the client that is sending the stream.
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param channel
+	 *            the channel the stream is being sent on.
+	 * @param data
+	 *            the data of the chunk.
+	 * @see com.whirvis.jraknet.peer.RakNetPeer#sendStream(int,
+	 *      java.nio.channels.ReadableByteChannel,
+	 *      com.whirvis.jraknet.peer.StreamListener)
+	 */
+	public default void handleStreamData(RakNetServer server, RakNetClientPeer peer, int streamId, int channel,
+			Packet data) {
+	}
+
+	/**
+	 * Called when a stream being sent by a client has ended.
+	 * 
+	 * @param server
+	 *            the server.
+	 * @param peer
+	 *            the client that sent the stream.
+	 * @param streamId
+	 *            the ID of the stream.
+	 * @param channel
+	 *            the channel the stream was sent on.
+	 * @param completed
+	 *            <code>true</code> if the stream was received in full,
+	 *            <code>false</code> if it was aborted by the client.
+	 */
+	public default void onStreamEnd(RakNetServer server, RakNetClientPeer peer, int streamId, int channel,
+			boolean completed) {
+	}
+
 	/**
 	 * Called when a packet with an ID below <code>ID_USER_PACKET_ENUM</code>
 	 * cannot be handled by the {@link RakNetClientPeer} because it is not
@@ -0,0 +1,234 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.transport;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.AttributeKey;
+
+/**
+ * Batches the datagrams written to a channel by its event loop, so they can be
+ * flushed all at once.
+ * <p>
+ * Datagrams written from the event loop of a channel are held until every
+ * task currently queued on the event loop has run, such as the updates of all
+ * peers that are due. They are then written and flushed together, which allows
+ * for the native epoll transport to send them with a single
+ * <code>sendmmsg</code> system call instead of one system call per datagram.
+ * <p>
+ * If the transport supports {@link Transport#isSegmentationSupported()
+ * segmented datagrams}, consecutive datagrams of the same size going to the
+ * same recipient, such as the fragments of a split packet, are merged into a
+ * single segmented datagram. The kernel then splits it back up into the
+ * original datagrams, making the cost of sending them that of sending one. If
+ * a segmented datagram fails to be sent, the datagrams it was made of are sent
+ * on their own instead, and no more datagrams are merged from then on.
+ * <p>
+ * Datagrams written from any other thread are flushed immediately, as they
+ * are not confined to the event loop of the channel.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class DatagramBatch implements Runnable {
+
+	/**
+	 * The most datagrams the kernel will send as a single segmented datagram.
+	 */
+	public static final int MAXIMUM_SEGMENTS = 64;
+
+	/**
+	 * The largest size in bytes of a segmented datagram, this being the largest
+	 * payload a UDP datagram can carry over IPv4.
+	 */
+	public static final int MAXIMUM_SEGMENTED_SIZE = 65507;
+
+	private static final AttributeKey<DatagramBatch> BATCH = AttributeKey.valueOf(DatagramBatch.class, "BATCH");
+
+	/**
+	 * Installs a datagram batch on the specified channel.
+	 * <p>
+	 * Only datagrams written to the channel with the
+	 * {@link #write(Channel, ByteBuf, InetSocketAddress)} method are batched.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param transport
+	 *            the transport the channel was created with.
+	 * @throws NullPointerException
+	 *             if the <code>channel</code> or <code>transport</code> are
+	 *             <code>null</code>.
+	 */
+	public static void install(Channel channel, Transport transport) throws NullPointerException {
+		if (channel == null) {
+			throw new NullPointerException("Channel cannot be null");
+		} else if (transport == null) {
+			throw new NullPointerException("Transport cannot be null");
+		}
+		channel.attr(BATCH).set(new DatagramBatch(channel, transport));
+	}
+
+	/**
+	 * Writes a datagram to the specified channel.
+	 * <p>
+	 * If the channel has a datagram batch installed and the current thread is
+	 * the event loop of the channel, the datagram is added to the batch.
+	 * Otherwise, the datagram is written and flushed immediately.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param buf
+	 *            the content of the datagram.
+	 * @param address
+	 *            the address of the recipient.
+	 * @throws NullPointerException
+	 *             if the <code>channel</code>, <code>buf</code>, or
+	 *             <code>address</code> are <code>null</code>.
+	 * @see #install(Channel, Transport)
+	 */
+	public static void write(Channel channel, ByteBuf buf, InetSocketAddress address) throws NullPointerException {
+		if (channel == null) {
+			throw new NullPointerException("Channel cannot be null");
+		} else if (buf == null) {
+			throw new NullPointerException("Buffer cannot be null");
+		} else if (address == null) {
+			throw new NullPointerException("Address cannot be null");
+		}
+		DatagramBatch batch = channel.attr(BATCH).get();
+		if (batch == null || !channel.eventLoop().inEventLoop()) {
+			channel.writeAndFlush(new DatagramPacket(buf, address));
+			return;
+		}
+		batch.pending.add(new DatagramPacket(buf, address));
+		if (batch.scheduled == false) {
+			batch.scheduled = true;
+			channel.eventLoop().execute(batch);
+		}
+	}
+
+	private final Channel channel;
+	private final Transport transport;
+	private final ArrayList<DatagramPacket> pending;
+	private boolean segmentation;
+	private boolean scheduled;
+
+	private DatagramBatch(Channel channel, Transport transport) {
+		this.channel = channel;
+		this.transport = transport;
+		this.pending = new ArrayList<DatagramPacket>();
+		this.segmentation = transport.isSegmentationSupported();
+	}
+
+	/**
+	 * Writes and flushes every datagram in the batch.
+	 */
+	@Override
+	public void run() {
+		this.scheduled = false;
+		if (pending.isEmpty()) {
+			return;
+		} else if (!channel.isActive()) {
+			for (DatagramPacket packet : pending) {
+				packet.release();
+			}
+			pending.clear();
+			return;
+		}
+		int i = 0;
+		while (i < pending.size()) {
+			DatagramPacket first = pending.get(i);
+			int segmentSize = first.content().readableBytes();
+			int end = i + 1;
+
+			/*
+			 * Every segment of a segmented datagram must be the same size,
+			 * except for the last which is allowed to be shorter. As such,
+			 * the run of datagrams is ended by the first datagram which is
+			 * shorter than the rest.
+			 */
+			if (segmentation == true && segmentSize > 0) {
+				int size = segmentSize;
+				while (end < pending.size() && end - i < MAXIMUM_SEGMENTS) {
+					DatagramPacket next = pending.get(end);
+					int nextSize = next.content().readableBytes();
+					if (nextSize <= 0 || nextSize > segmentSize || size + nextSize > MAXIMUM_SEGMENTED_SIZE
+							|| !next.recipient().equals(first.recipient())) {
+						break;
+					}
+					size += nextSize;
+					end++;
+					if (nextSize < segmentSize) {
+						break;
+					}
+				}
+			}
+
+			/*
+			 * The datagrams merged into a segmented datagram are held on to
+			 * until it has been written. If the kernel or the device refuses
+			 * to send it, they are sent on their own instead so that none of
+			 * them are lost.
+			 */
+			if (end - i > 1) {
+				InetSocketAddress recipient = first.recipient();
+				CompositeByteBuf content = channel.alloc().compositeDirectBuffer(end - i);
+				ByteBuf[] segments = new ByteBuf[end - i];
+				for (int j = i; j < end; j++) {
+					segments[j - i] = pending.get(j).content().retainedDuplicate();
+					content.addComponent(true, pending.get(j).content());
+				}
+				channel.write(transport.createSegmentedPacket(content, segmentSize, recipient)).addListener(future -> {
+					if (future.isSuccess()) {
+						for (ByteBuf segment : segments) {
+							segment.release();
+						}
+						return;
+					}
+					this.segmentation = false; // Kernel or device refused, stop segmenting
+					for (ByteBuf segment : segments) {
+						channel.write(new DatagramPacket(segment, recipient));
+					}
+					channel.flush();
+				});
+			} else {
+				channel.write(first);
+			}
+			i = end;
+		}
+		pending.clear();
+		channel.flush();
+	}
+
+}
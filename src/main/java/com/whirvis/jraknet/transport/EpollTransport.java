@@ -0,0 +1,134 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.transport;
+
+import java.net.InetSocketAddress;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.SegmentedDatagramPacket;
+
+/**
+ * The native epoll transport, which is only available on Linux.
+ * <p>
+ * Whether or not the transport is available is only checked once, as the
+ * native library can not be loaded after it has failed to load. If the epoll
+ * classes are missing from the classpath entirely, the transport is simply
+ * treated as unavailable.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see Transport#EPOLL
+ */
+final class EpollTransport implements Transport {
+
+	private Boolean available;
+
+	@Override
+	public String getName() {
+		return "epoll";
+	}
+
+	@Override
+	public synchronized boolean isAvailable() {
+		if (available == null) {
+			try {
+				this.available = Epoll.isAvailable();
+			} catch (LinkageError e) {
+				this.available = false;
+			}
+		}
+		return available.booleanValue();
+	}
+
+	@Override
+	public boolean isReusePortSupported() {
+		return this.isAvailable();
+	}
+
+	@Override
+	public EventLoopGroup createEventLoopGroup(int threads) throws IllegalArgumentException, IllegalStateException {
+		if (threads < 0) {
+			throw new IllegalArgumentException("Thread count cannot be negative");
+		} else if (this.isAvailable() == false) {
+			throw new IllegalStateException("The epoll transport is not available");
+		}
+		return new EpollEventLoopGroup(threads);
+	}
+
+	@Override
+	public Class<? extends DatagramChannel> getDatagramChannelClass() throws IllegalStateException {
+		if (this.isAvailable() == false) {
+			throw new IllegalStateException("The epoll transport is not available");
+		}
+		return EpollDatagramChannel.class;
+	}
+
+	@Override
+	public void enableReusePort(Bootstrap bootstrap) throws NullPointerException, UnsupportedOperationException {
+		if (bootstrap == null) {
+			throw new NullPointerException("Bootstrap cannot be null");
+		} else if (this.isAvailable() == false) {
+			throw new UnsupportedOperationException("The epoll transport is not available");
+		}
+		bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+	}
+
+	@Override
+	public boolean isSegmentationSupported() {
+		return this.isAvailable() && EpollDatagramChannel.isSegmentedDatagramPacketSupported();
+	}
+
+	@Override
+	public DatagramPacket createSegmentedPacket(ByteBuf content, int segmentSize, InetSocketAddress recipient)
+			throws NullPointerException, UnsupportedOperationException {
+		if (content == null) {
+			throw new NullPointerException("Content cannot be null");
+		} else if (recipient == null) {
+			throw new NullPointerException("Recipient cannot be null");
+		} else if (this.isSegmentationSupported() == false) {
+			throw new UnsupportedOperationException("Segmented datagrams are not supported by the kernel");
+		}
+		return new SegmentedDatagramPacket(content, segmentSize, recipient);
+	}
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.transport;
+
+import java.net.InetSocketAddress;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+
+/**
+ * The NIO transport, which is available on every platform.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see Transport#NIO
+ */
+final class NioTransport implements Transport {
+
+	@Override
+	public String getName() {
+		return "NIO";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public boolean isReusePortSupported() {
+		return false;
+	}
+
+	@Override
+	public EventLoopGroup createEventLoopGroup(int threads) throws IllegalArgumentException {
+		if (threads < 0) {
+			throw new IllegalArgumentException("Thread count cannot be negative");
+		}
+		return new NioEventLoopGroup(threads);
+	}
+
+	@Override
+	public Class<? extends DatagramChannel> getDatagramChannelClass() {
+		return NioDatagramChannel.class;
+	}
+
+	@Override
+	public void enableReusePort(Bootstrap bootstrap) throws NullPointerException, UnsupportedOperationException {
+		if (bootstrap == null) {
+			throw new NullPointerException("Bootstrap cannot be null");
+		}
+		throw new UnsupportedOperationException("SO_REUSEPORT is not supported by the NIO transport");
+	}
+
+	@Override
+	public boolean isSegmentationSupported() {
+		return false;
+	}
+
+	@Override
+	public DatagramPacket createSegmentedPacket(ByteBuf content, int segmentSize, InetSocketAddress recipient)
+			throws NullPointerException, UnsupportedOperationException {
+		if (content == null) {
+			throw new NullPointerException("Content cannot be null");
+		} else if (recipient == null) {
+			throw new NullPointerException("Recipient cannot be null");
+		}
+		throw new UnsupportedOperationException("Segmented datagrams are not supported by the NIO transport");
+	}
+
+	@Override
+	public String toString() {
+		return this.getName();
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet.transport;
+
+import java.net.InetSocketAddress;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * A Netty transport used to create the event loop groups and datagram channels
+ * of a bootstrap.
+ * <p>
+ * By default, the {@link #EPOLL epoll} transport is used when the native
+ * library for it is available, and the {@link #NIO} transport is used
+ * otherwise.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ * @see com.whirvis.jraknet.RakNet#setTransport(Transport)
+ */
+public interface Transport {
+
+	/**
+	 * The NIO transport, which is available on every platform.
+	 */
+	public static final Transport NIO = new NioTransport();
+
+	/**
+	 * The native epoll transport, which is only available on Linux.
+	 */
+	public static final Transport EPOLL = new EpollTransport();
+
+	/**
+	 * Returns the transport that should be used by default.
+	 * 
+	 * @return the {@link #EPOLL epoll} transport if it is available, the
+	 *         {@link #NIO} transport otherwise.
+	 */
+	public static Transport getDefault() {
+		return EPOLL.isAvailable() ? EPOLL : NIO;
+	}
+
+	/**
+	 * Returns the name of the transport.
+	 * 
+	 * @return the name of the transport.
+	 */
+	public String getName();
+
+	/**
+	 * Returns whether or not the transport can be used on this machine.
+	 * 
+	 * @return <code>true</code> if the transport can be used,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isAvailable();
+
+	/**
+	 * Returns whether or not several sockets can be bound to the same address
+	 * with <code>SO_REUSEPORT</code> using the transport.
+	 * 
+	 * @return <code>true</code> if <code>SO_REUSEPORT</code> is supported,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isReusePortSupported();
+
+	/**
+	 * Creates an event loop group for the transport.
+	 * 
+	 * @param threads
+	 *            the amount of threads the group will use, <code>0</code> to
+	 *            use the Netty default.
+	 * @return the created event loop group.
+	 * @throws IllegalArgumentException
+	 *             if <code>threads</code> is negative.
+	 * @throws IllegalStateException
+	 *             if the transport is not available.
+	 */
+	public EventLoopGroup createEventLoopGroup(int threads) throws IllegalArgumentException, IllegalStateException;
+
+	/**
+	 * Returns the class of the datagram channels created by the transport.
+	 * 
+	 * @return the class of the datagram channels created by the transport.
+	 * @throws IllegalStateException
+	 *             if the transport is not available.
+	 */
+	public Class<? extends DatagramChannel> getDatagramChannelClass() throws IllegalStateException;
+
+	/**
+	 * Enables <code>SO_REUSEPORT</code> on the channels bound by the specified
+	 * bootstrap.
+	 * 
+	 * @param bootstrap
+	 *            the bootstrap.
+	 * @throws NullPointerException
+	 *             if the <code>bootstrap</code> is <code>null</code>.
+	 * @throws UnsupportedOperationException
+	 *             if <code>SO_REUSEPORT</code> is not supported by the
+	 *             transport.
+	 * @see #isReusePortSupported()
+	 */
+	public void enableReusePort(Bootstrap bootstrap) throws NullPointerException, UnsupportedOperationException;
+
+	/**
+	 * Returns whether or not several datagrams can be sent at once as a single
+	 * segmented datagram, also known as UDP generic segmentation offload.
+	 * 
+	 * @return <code>true</code> if segmented datagrams are supported,
+	 *         <code>false</code> otherwise.
+	 */
+	public boolean isSegmentationSupported();
+
+	/**
+	 * Creates a segmented datagram, which the kernel splits into datagrams of
+	 * <code>segmentSize</code> bytes before sending them to the recipient.
+	 * Every segment except for the last must be exactly
+	 * <code>segmentSize</code> bytes long.
+	 * 
+	 * @param content
+	 *            the content of every segment.
+	 * @param segmentSize
+	 *            the size of each segment.
+	 * @param recipient
+	 *            the address of the recipient.
+	 * @return the created segmented datagram.
+	 * @throws NullPointerException
+	 *             if the <code>content</code> or <code>recipient</code> are
+	 *             <code>null</code>.
+	 * @throws UnsupportedOperationException
+	 *             if segmented datagrams are not supported by the transport.
+	 * @see #isSegmentationSupported()
+	 */
+	public DatagramPacket createSegmentedPacket(ByteBuf content, int segmentSize, InetSocketAddress recipient)
+			throws NullPointerException, UnsupportedOperationException;
+
+}
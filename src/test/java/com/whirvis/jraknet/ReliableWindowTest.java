@@ -0,0 +1,220 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.protocol.Priority;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.server.BlockedAddress;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Tests that split packets do not leave holes in the reliable window of the
+ * {@link com.whirvis.jraknet.peer.RakNetPeer RakNetPeer}.
+ * <p>
+ * This test sends a stream of {@link Reliability#RELIABLE_ORDERED
+ * RELIABLE_ORDERED} packets that is longer than
+ * {@value RakNetPeer#MAX_RELIABLE_WINDOW_SIZE} message indexes, with a packet
+ * large enough to be split mixed in every so often. If the message index of a
+ * split packet is never sent, the reliable window of the server can never
+ * slide past it and the client is eventually disconnected. The test fails if
+ * the client is disconnected, or if a packet arrives out of order or is lost.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class ReliableWindowTest {
+
+	private static final Logger LOG = LogManager.getLogger(ReliableWindowTest.class);
+	private static final short PACKET_ID = 0xFD;
+	private static final int SPLIT_INTERVAL = 1024;
+	private static final int SPLIT_SIZE = 4096;
+	private static final long PACKET_SEND_COUNT = RakNetPeer.MAX_RELIABLE_WINDOW_SIZE + (SPLIT_INTERVAL * 4);
+	private static final int MAX_PACKETS_IN_FLIGHT = 1024;
+	private static final AtomicLong packetsReceived = new AtomicLong();
+	private static long startSend = -1;
+
+	private ReliableWindowTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. These values are ignored.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	public static void main(String[] args) throws RakNetException, UnknownHostException {
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		LOG.info("Creating server, sleeping for 3000MS, and then creating the client...");
+		createServer();
+		RakNet.sleep(3000L);
+		createClient();
+	}
+
+	/**
+	 * Creates the server for the test.
+	 * 
+	 * @return the server that will receive the packets.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 */
+	private static RakNetServer createServer() throws RakNetException {
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void onLogin(RakNetServer server, RakNetClientPeer peer) {
+				if (RakNet.isLocalAddress(peer.getAddress())) {
+					LOG.info("Server - Client logged in from " + peer.getAddress());
+				} else {
+					server.disconnect(peer, "Session is not from local address");
+					server.blockAddress(peer.getInetAddress(), BlockedAddress.PERMANENT_BLOCK);
+				}
+			}
+
+			@Override
+			public void onDisconnect(RakNetServer server, InetSocketAddress address, RakNetClientPeer peer,
+					String reason) {
+				LOG.error("Server - Client from " + address + " disconnected (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void handleMessage(RakNetServer server, RakNetClientPeer peer, RakNetPacket packet, int channel) {
+				if (packet.getId() == PACKET_ID) {
+					long index = packet.readLong();
+					long expected = packetsReceived.get();
+					if (index != expected) {
+						LOG.error("Server - Received packet " + index + " when expecting " + expected);
+						System.exit(1);
+					} else if (index % SPLIT_INTERVAL == 0 && packet.remaining() != SPLIT_SIZE) {
+						LOG.error("Server - Split packet " + index + " has " + packet.remaining()
+								+ " bytes of data when expecting " + SPLIT_SIZE);
+						System.exit(1);
+					}
+					packetsReceived.incrementAndGet();
+					if (index + 1 >= PACKET_SEND_COUNT) {
+						LOG.info("Server - Reliable window test passed, received " + PACKET_SEND_COUNT
+								+ " packets (Took " + (System.currentTimeMillis() - startSend) + "MS)");
+						System.exit(0);
+					}
+				}
+			}
+
+			@Override
+			public void onHandlerException(RakNetServer server, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+			@Override
+			public void onPeerException(RakNetServer server, RakNetClientPeer peer, Throwable throwable) {
+				throwable.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Creates the client for the test.
+	 * 
+	 * @return the client that will be sending the packets.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	private static RakNetClient createClient() throws RakNetException, UnknownHostException {
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void onLogin(RakNetClient client, RakNetServerPeer peer) {
+				LOG.info("Client - Logged in to server, sending " + PACKET_SEND_COUNT + " packets");
+				Thread sender = new Thread(() -> {
+					startSend = System.currentTimeMillis();
+					for (long i = 0; i < PACKET_SEND_COUNT && !peer.isDisconnected(); i++) {
+						// Do not get too far ahead of the server
+						while (i - packetsReceived.get() >= MAX_PACKETS_IN_FLIGHT) {
+							Thread.yield();
+						}
+
+						// Every so often, send a packet that must be split
+						RakNetPacket packet = new RakNetPacket(PACKET_ID);
+						packet.writeLong(i);
+						if (i % SPLIT_INTERVAL == 0) {
+							packet.pad(SPLIT_SIZE);
+						}
+						peer.sendMessage(Reliability.RELIABLE_ORDERED, Priority.MEDIUM, packet);
+					}
+				});
+				sender.setDaemon(true);
+				sender.start();
+			}
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				LOG.error("Client - Lost connection to server (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void onHandlerException(RakNetClient client, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		client.connect("localhost", RakNetTest.WHIRVIS_DEVELOPMENT_PORT);
+		return client;
+	}
+
+}
@@ -0,0 +1,251 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.protocol.Priority;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.message.EncapsulatedPacket;
+import com.whirvis.jraknet.server.BlockedAddress;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Tests that replacing a queued message does not break the delivery of
+ * {@link Reliability#UNRELIABLE_SEQUENCED UNRELIABLE_SEQUENCED} messages
+ * sent by the {@link com.whirvis.jraknet.peer.RakNetPeer RakNetPeer}.
+ * <p>
+ * This test queues an update for key <code>A</code>, an update for key
+ * <code>B</code>, and then a second update for key <code>A</code> which
+ * replaces the first one, all on the same sequenced channel before the peer
+ * gets to send any of them. The server must receive the newest update of both
+ * keys. If the replaced message were given a newer sequence index than the
+ * message queued after it, the update for key <code>B</code> would be dropped
+ * as stale.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class ReplaceableMessageTest {
+
+	private static final Logger LOG = LogManager.getLogger(ReplaceableMessageTest.class);
+	private static final short PACKET_ID = 0xFC;
+	private static final int KEY_A = 'A';
+	private static final int KEY_B = 'B';
+	private static final HashMap<Integer, Integer> expected = new HashMap<Integer, Integer>();
+	private static final HashMap<Integer, Integer> received = new HashMap<Integer, Integer>();
+	private static long startSend = -1;
+
+	static {
+		expected.put(KEY_A, 2);
+		expected.put(KEY_B, 1);
+	}
+
+	private ReplaceableMessageTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. These values are ignored.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread. The
+	 *             <i>interrupted status</i> of the current thread is cleared
+	 *             when this exception is thrown.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	public static void main(String[] args) throws RakNetException, InterruptedException, UnknownHostException {
+		LOG.info("Creating server, sleeping 3000MS, and then creating the client...");
+		createServer();
+		RakNet.sleep(3000L);
+		createClient();
+
+		// Wait for either a result or for a timeout
+		while (true) {
+			Thread.sleep(100L);
+			if (startSend > -1 && System.currentTimeMillis() - startSend >= 10000L) {
+				LOG.error("Failed to complete test due to timeout, received " + received);
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Creates the server for the test.
+	 * 
+	 * @return the server that will receive the updates.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 */
+	private static RakNetServer createServer() throws RakNetException {
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void onLogin(RakNetServer server, RakNetClientPeer peer) {
+				if (RakNet.isLocalAddress(peer.getAddress())) {
+					LOG.info("Server - Client logged in from " + peer.getAddress());
+				} else {
+					server.disconnect(peer, "Session is not from local address");
+					server.blockAddress(peer.getInetAddress(), BlockedAddress.PERMANENT_BLOCK);
+				}
+			}
+
+			@Override
+			public void onDisconnect(RakNetServer server, InetSocketAddress address, RakNetClientPeer peer,
+					String reason) {
+				LOG.error("Server - Client from " + address + " disconnected (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void handleMessage(RakNetServer server, RakNetClientPeer peer, RakNetPacket packet, int channel) {
+				if (packet.getId() == PACKET_ID) {
+					int key = packet.readUnsignedByte();
+					int value = packet.readInt();
+					LOG.info("Server - Received update " + value + " for key " + (char) key);
+					if (!expected.get(key).equals(value)) {
+						LOG.error("Server - Received update " + value + " for key " + (char) key
+								+ " when the newest update is " + expected.get(key));
+						System.exit(1);
+					}
+					received.put(key, value);
+					if (received.equals(expected)) {
+						LOG.info("Server - Replaceable message test passed (Took "
+								+ (System.currentTimeMillis() - startSend) + "MS)");
+						System.exit(0);
+					}
+				}
+			}
+
+			@Override
+			public void onHandlerException(RakNetServer server, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Creates the client for the test.
+	 * 
+	 * @return the client that will be sending the updates.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	private static RakNetClient createClient() throws RakNetException, UnknownHostException {
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void onLogin(RakNetClient client, RakNetServerPeer peer) {
+				LOG.info("Client - Logged in to server, sending updates");
+
+				/*
+				 * All of the updates are queued by the event loop of the peer
+				 * in a single task, so none of them can be sent before the
+				 * update for key A has been replaced.
+				 */
+				peer.getEventLoop().execute(() -> {
+					startSend = System.currentTimeMillis();
+					EncapsulatedPacket first = sendUpdate(peer, KEY_A, 1);
+					sendUpdate(peer, KEY_B, 1);
+					EncapsulatedPacket replaced = sendUpdate(peer, KEY_A, 2);
+					if (replaced.orderIndex != first.orderIndex) {
+						LOG.error("Client - Replaced update has sequence index " + replaced.orderIndex
+								+ " when it should have kept " + first.orderIndex);
+						System.exit(1);
+					} else if (replaced.payload.buffer().getUnsignedByte(1) != KEY_A
+							|| replaced.payload.buffer().getInt(2) != 2) {
+						LOG.error("Client - Returned message is not the newest queued update for key A");
+						System.exit(1);
+					}
+				});
+			}
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				LOG.error("Client - Lost connection to server (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void onHandlerException(RakNetClient client, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		client.connect("localhost", RakNetTest.WHIRVIS_DEVELOPMENT_PORT);
+		return client;
+	}
+
+	/**
+	 * Sends an update for the specified key as a replaceable
+	 * {@link Reliability#UNRELIABLE_SEQUENCED UNRELIABLE_SEQUENCED} message.
+	 * 
+	 * @param peer
+	 *            the peer to send the update to.
+	 * @param key
+	 *            the key of the update.
+	 * @param value
+	 *            the value of the update.
+	 * @return the copy of the queued message.
+	 */
+	private static EncapsulatedPacket sendUpdate(RakNetServerPeer peer, int key, int value) {
+		RakNetPacket packet = new RakNetPacket(PACKET_ID);
+		packet.writeUnsignedByte(key);
+		packet.writeInt(value);
+		return peer.sendReplaceableMessage(Integer.valueOf(key), Reliability.UNRELIABLE_SEQUENCED, Priority.MEDIUM,
+				RakNet.DEFAULT_CHANNEL, packet);
+	}
+
+}
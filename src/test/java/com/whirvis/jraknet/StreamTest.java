@@ -0,0 +1,275 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.peer.StreamListener;
+import com.whirvis.jraknet.server.BlockedAddress;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Tests the streaming feature of the
+ * {@link com.whirvis.jraknet.peer.RakNetPeer RakNetPeer} by sending a stream
+ * far bigger than the biggest message that can be split.
+ * <p>
+ * The data of the stream is generated as it is read, and is checked by the
+ * server as each chunk arrives. This way, neither side ever has the entire
+ * stream in memory. By default, the stream is 8MB in size. A different size in
+ * bytes can be given as the first program argument.
+ *
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class StreamTest {
+
+	private static final Logger LOG = LogManager.getLogger(StreamTest.class);
+	private static final long DEFAULT_STREAM_SIZE = 8L * 1024L * 1024L;
+	private static long streamSize = DEFAULT_STREAM_SIZE;
+	private static long startSend = -1;
+	private static long received = 0;
+
+	private StreamTest() {
+		// Static class
+	}
+
+	/**
+	 * Returns the byte of the stream at the specified position.
+	 * 
+	 * @param position
+	 *            the position.
+	 * @return the byte of the stream at the specified position.
+	 */
+	private static int getByte(long position) {
+		return (int) ((position * 31L + (position >>> 8)) & 0xFF);
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. The first argument is the size of the
+	 *            stream to send in bytes, and is optional.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws InterruptedException
+	 *             if any thread has interrupted the current thread. The
+	 *             <i>interrupted status</i> of the current thread is cleared
+	 *             when this exception is thrown.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	public static void main(String[] args) throws RakNetException, InterruptedException, UnknownHostException {
+		if (args.length > 0) {
+			streamSize = Long.parseLong(args[0]);
+		}
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		LOG.info("Creating server, sleeping 3000MS, and then creating the client...");
+		createServer();
+		RakNet.sleep(3000L);
+		createClient();
+
+		// Wait for either a result or for a timeout
+		while (true) {
+			Thread.sleep(100L);
+			if (startSend > -1 && System.currentTimeMillis() - startSend >= 300000L) {
+				LOG.error("Failed to complete test due to timeout (Took over 5 minutes!)");
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Creates the server for the test.
+	 * 
+	 * @return the server that will receive the stream.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 */
+	private static RakNetServer createServer() throws RakNetException {
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.setStreamsEnabled(true);
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void onLogin(RakNetServer server, RakNetClientPeer peer) {
+				if (RakNet.isLocalAddress(peer.getAddress())) {
+					LOG.info("Server - Client logged in from " + peer.getAddress());
+				} else {
+					server.disconnect(peer, "Session is not from local address");
+					server.blockAddress(peer.getInetAddress(), BlockedAddress.PERMANENT_BLOCK);
+				}
+			}
+
+			@Override
+			public void onDisconnect(RakNetServer server, InetSocketAddress address, RakNetClientPeer peer,
+					String reason) {
+				LOG.info("Server - Client from " + address + " disconnected (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void handleStreamData(RakNetServer server, RakNetClientPeer peer, int streamId, int channel,
+					Packet data) {
+				while (data.remaining() > 0) {
+					int expected = getByte(received);
+					int actual = data.readUnsignedByte();
+					if (actual != expected) {
+						LOG.error("Server - Byte " + received + " of the stream is " + actual + " when it should be "
+								+ expected);
+						System.exit(1);
+					}
+					received++;
+				}
+			}
+
+			@Override
+			public void onStreamEnd(RakNetServer server, RakNetClientPeer peer, int streamId, int channel,
+					boolean completed) {
+				if (completed == false) {
+					LOG.error("Server - Stream was aborted after " + received + " bytes");
+					System.exit(1);
+				} else if (received != streamSize) {
+					LOG.error("Server - Received " + received + " bytes when " + streamSize + " should have been sent");
+					System.exit(1);
+				}
+				long took = System.currentTimeMillis() - startSend;
+				LOG.info("Server - Stream test passed, received " + received + " bytes (Took " + took + "MS, "
+						+ (received * 1000L / Math.max(took, 1L) / 1024L) + "KB/s)");
+				System.exit(0);
+			}
+
+			@Override
+			public void onHandlerException(RakNetServer server, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Creates the client for the test.
+	 * 
+	 * @return the client that will be sending the stream.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address cannot be found.
+	 */
+	private static RakNetClient createClient() throws RakNetException, UnknownHostException {
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void onLogin(RakNetClient client, RakNetServerPeer peer) {
+				LOG.info("Client - Logged in to server with MTU " + peer.getMaximumTransferUnit() + ", sending "
+						+ streamSize + " byte stream...");
+				InputStream source = new InputStream() {
+
+					private long position;
+
+					@Override
+					public int read() {
+						return position < streamSize ? getByte(position++) : -1;
+					}
+
+					@Override
+					public int read(byte[] b, int off, int len) {
+						if (position >= streamSize) {
+							return -1;
+						}
+						int read = (int) Math.min(len, streamSize - position);
+						for (int i = 0; i < read; i++) {
+							b[off + i] = (byte) getByte(position++);
+						}
+						return read;
+					}
+
+				};
+				startSend = System.currentTimeMillis();
+				peer.sendStream(RakNet.DEFAULT_CHANNEL, source, new StreamListener() {
+
+					private long lastLog;
+
+					@Override
+					public void onProgress(RakNetPeer peer, int streamId, long acknowledged) {
+						if (acknowledged - lastLog >= streamSize / 8) {
+							LOG.info("Client - Server acknowledged " + acknowledged + " bytes of stream " + streamId);
+							this.lastLog = acknowledged;
+						}
+					}
+
+					@Override
+					public void onComplete(RakNetPeer peer, int streamId, long acknowledged) {
+						LOG.info("Client - Finished sending " + acknowledged + " bytes of stream " + streamId);
+					}
+
+					@Override
+					public void onFailure(RakNetPeer peer, int streamId, Throwable cause) {
+						LOG.error("Client - Failed to send stream " + streamId, cause);
+						System.exit(1);
+					}
+
+				});
+			}
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				LOG.error("Client - Lost connection to server (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void onHandlerException(RakNetClient client, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		client.connect("localhost", RakNetTest.WHIRVIS_DEVELOPMENT_PORT);
+		return client;
+	}
+
+}
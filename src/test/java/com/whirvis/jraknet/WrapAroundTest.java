@@ -0,0 +1,245 @@
+/*
+ *    __     ______     ______     __  __     __   __     ______     ______  
+ *   /\ \   /\  == \   /\  __ \   /\ \/ /    /\ "-.\ \   /\  ___\   /\__  _\
+ *  _\_\ \  \ \  __<   \ \  __ \  \ \  _"-.  \ \ \-.  \  \ \  __\   \/_/\ \/  
+ * /\_____\  \ \_\ \_\  \ \_\ \_\  \ \_\ \_\  \ \_\\"\_\  \ \_____\    \ \_\ 
+ * \/_____/   \/_/ /_/   \/_/\/_/   \/_/\/_/   \/_/ \/_/   \/_____/     \/_/                                                                          
+ *
+ * the MIT License (MIT)
+ *
+ * Copyright (c) 2016-2020 "Whirvis" Trent Summerlin
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * the above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.whirvis.jraknet;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.whirvis.jraknet.client.RakNetClient;
+import com.whirvis.jraknet.client.RakNetClientListener;
+import com.whirvis.jraknet.peer.RakNetClientPeer;
+import com.whirvis.jraknet.peer.RakNetServerPeer;
+import com.whirvis.jraknet.protocol.Priority;
+import com.whirvis.jraknet.protocol.Reliability;
+import com.whirvis.jraknet.protocol.SerialNumber;
+import com.whirvis.jraknet.server.BlockedAddress;
+import com.whirvis.jraknet.server.RakNetServer;
+import com.whirvis.jraknet.server.RakNetServerListener;
+
+/**
+ * Tests the wrapping around of the <code>24-bit</code> sequence numbers,
+ * message indexes, and order indexes of the
+ * {@link com.whirvis.jraknet.peer.RakNetPeer RakNetPeer} through a long
+ * running stress test.
+ * <p>
+ * This stress test sends small packets using both the
+ * {@link Reliability#RELIABLE_ORDERED RELIABLE_ORDERED} and
+ * {@link Reliability#UNRELIABLE_SEQUENCED UNRELIABLE_SEQUENCED}
+ * reliabilities, each with the {@link Priority#IMMEDIATE IMMEDIATE} priority
+ * so that every packet is sent in a custom packet of its own. It keeps going
+ * until every index has wrapped around several times, and fails if an ordered
+ * packet arrives out of order or is lost, or if a sequenced packet is handled
+ * after a newer one. Depending on the machine, this test can take a long time
+ * to finish.
+ * 
+ * @author "Whirvis" Trent Summerlin
+ * @since JRakNet v2.12.4
+ */
+public final class WrapAroundTest {
+
+	private static final Logger LOG = LogManager.getLogger(WrapAroundTest.class);
+	private static final short ORDERED_ID = 0xFD;
+	private static final short SEQUENCED_ID = 0xFE;
+	private static final int ORDERED_CHANNEL = 0;
+	private static final int SEQUENCED_CHANNEL = 1;
+	private static final int DEFAULT_WRAP_COUNT = 3;
+	private static final long WRAP_SIZE = SerialNumber.MAX_VALUE + 1L;
+	private static final int MAX_PACKETS_IN_FLIGHT = 1024;
+	private static final long PROGRESS_INTERVAL = 1L << 18;
+	private static final AtomicLong orderedReceived = new AtomicLong();
+	private static final AtomicLong sequencedReceived = new AtomicLong();
+	private static long packetSendCount = -1;
+	private static long lastSequencedIndex = -1;
+	private static long startSend = -1;
+
+	private WrapAroundTest() {
+		// Static class
+	}
+
+	/**
+	 * The entry point for the test.
+	 * 
+	 * @param args
+	 *            the program arguments. If specified, the first argument is
+	 *            the amount of times each index should wrap around, which is
+	 *            {@value #DEFAULT_WRAP_COUNT} by default.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	public static void main(String[] args) throws RakNetException, UnknownHostException {
+		int wrapCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WRAP_COUNT;
+		packetSendCount = wrapCount * WRAP_SIZE + 1;
+		RakNet.setMaxPacketsPerSecond(Long.MAX_VALUE);
+		LOG.info("Creating server, sleeping for 3000MS, and then creating the client...");
+		createServer();
+		RakNet.sleep(3000L);
+		createClient();
+	}
+
+	/**
+	 * Creates the server for the test.
+	 * 
+	 * @return the server that will receive the packets.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 */
+	private static RakNetServer createServer() throws RakNetException {
+		RakNetServer server = new RakNetServer(RakNetTest.WHIRVIS_DEVELOPMENT_PORT, 1);
+		server.addListener(new RakNetServerListener() {
+
+			@Override
+			public void onLogin(RakNetServer server, RakNetClientPeer peer) {
+				if (RakNet.isLocalAddress(peer.getAddress())) {
+					LOG.info("Server - Client logged in from " + peer.getAddress());
+				} else {
+					server.disconnect(peer, "Session is not from local address");
+					server.blockAddress(peer.getInetAddress(), BlockedAddress.PERMANENT_BLOCK);
+				}
+			}
+
+			@Override
+			public void onDisconnect(RakNetServer server, InetSocketAddress address, RakNetClientPeer peer,
+					String reason) {
+				LOG.error("Server - Client from " + address + " disconnected (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void handleMessage(RakNetServer server, RakNetClientPeer peer, RakNetPacket packet, int channel) {
+				if (packet.getId() == ORDERED_ID) {
+					long index = packet.readLong();
+					long expected = orderedReceived.get();
+					if (index != expected) {
+						LOG.error("Server - Received ordered packet " + index + " when expecting " + expected);
+						System.exit(1);
+					} else if ((index + 1) % WRAP_SIZE == 0) {
+						LOG.info("Server - Indexes have wrapped around " + ((index + 1) / WRAP_SIZE) + " time"
+								+ ((index + 1) / WRAP_SIZE == 1 ? "" : "s") + " (Took "
+								+ (System.currentTimeMillis() - startSend) + "MS)");
+					} else if ((index + 1) % PROGRESS_INTERVAL == 0) {
+						LOG.info("Server - Received " + (index + 1) + "/" + packetSendCount + " ordered packets");
+					}
+					orderedReceived.incrementAndGet();
+					if (index + 1 >= packetSendCount) {
+						LOG.info("Server - Wrap around test passed, received " + sequencedReceived.get() + "/"
+								+ packetSendCount + " sequenced packets (Took "
+								+ (System.currentTimeMillis() - startSend) + "MS)");
+						System.exit(0);
+					}
+				} else if (packet.getId() == SEQUENCED_ID) {
+					long index = packet.readLong();
+					if (index <= lastSequencedIndex) {
+						LOG.error("Server - Handled sequenced packet " + index + " after " + lastSequencedIndex);
+						System.exit(1);
+					}
+					lastSequencedIndex = index;
+					sequencedReceived.incrementAndGet();
+				}
+			}
+
+			@Override
+			public void onHandlerException(RakNetServer server, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+			@Override
+			public void onPeerException(RakNetServer server, RakNetClientPeer peer, Throwable throwable) {
+				throwable.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Creates the client for the test.
+	 * 
+	 * @return the client that will be sending the packets.
+	 * @throws RakNetException
+	 *             if a RakNet error occurs.
+	 * @throws UnknownHostException
+	 *             if the <code>localhost</code> address could not be found.
+	 */
+	private static RakNetClient createClient() throws RakNetException, UnknownHostException {
+		RakNetClient client = new RakNetClient();
+		client.addListener(new RakNetClientListener() {
+
+			@Override
+			public void onLogin(RakNetClient client, RakNetServerPeer peer) {
+				LOG.info("Client - Logged in to server, sending " + packetSendCount + " ordered and sequenced packets");
+				Thread sender = new Thread(() -> {
+					startSend = System.currentTimeMillis();
+					for (long i = 0; i < packetSendCount && !peer.isDisconnected(); i++) {
+						// Do not get too far ahead of the server
+						while (i - orderedReceived.get() >= MAX_PACKETS_IN_FLIGHT) {
+							Thread.yield();
+						}
+
+						RakNetPacket ordered = new RakNetPacket(ORDERED_ID);
+						ordered.writeLong(i);
+						peer.sendMessage(Reliability.RELIABLE_ORDERED, Priority.IMMEDIATE, ORDERED_CHANNEL, ordered);
+						RakNetPacket sequenced = new RakNetPacket(SEQUENCED_ID);
+						sequenced.writeLong(i);
+						peer.sendMessage(Reliability.UNRELIABLE_SEQUENCED, Priority.IMMEDIATE, SEQUENCED_CHANNEL,
+								sequenced);
+					}
+				});
+				sender.setDaemon(true);
+				sender.start();
+			}
+
+			@Override
+			public void onDisconnect(RakNetClient client, InetSocketAddress address, RakNetServerPeer peer,
+					String reason) {
+				LOG.error("Client - Lost connection to server (" + reason + ")");
+				System.exit(1);
+			}
+
+			@Override
+			public void onHandlerException(RakNetClient client, InetSocketAddress address, Throwable cause) {
+				cause.printStackTrace();
+				System.exit(1);
+			}
+
+		});
+		client.connect("localhost", RakNetTest.WHIRVIS_DEVELOPMENT_PORT);
+		return client;
+	}
+
+}